@@ -0,0 +1,61 @@
+package com.xaqwerx.swipelayout;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+/**
+ * Minimal JMH-like runner: warm up, then measure time and allocated bytes of a fixed number of operations.
+ * Allocations are read from per-thread JVM counters, so operations must run on the calling thread.
+ */
+final class BenchmarkRunner {
+
+	interface Operation {
+		void run(int iteration);
+	}
+
+	static final class Result {
+		final String name;
+		final double opsPerSecond;
+		final double bytesPerOp;
+
+		Result(String name, double opsPerSecond, double bytesPerOp) {
+			this.name = name;
+			this.opsPerSecond = opsPerSecond;
+			this.bytesPerOp = bytesPerOp;
+		}
+
+		@Override
+		public String toString() {
+			return String.format(Locale.US, "%-40s %,16.0f ops/s %10.2f B/op", name, opsPerSecond, bytesPerOp);
+		}
+	}
+
+	private BenchmarkRunner() {
+	}
+
+	static Result run(String name, int warmUp, int iterations, Operation operation) {
+		for (int i = 0; i < warmUp; i++) {
+			operation.run(i);
+		}
+
+		long bytesBefore = allocatedBytes();
+		long timeBefore = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			operation.run(i);
+		}
+		long time = System.nanoTime() - timeBefore;
+		long bytes = allocatedBytes() - bytesBefore;
+
+		Result result = new Result(name, iterations * 1e9 / Math.max(1, time), (double) bytes / iterations);
+		System.out.println(result);
+		return result;
+	}
+
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return 0;
+	}
+}
@@ -0,0 +1,146 @@
+package com.xaqwerx.swipelayout;
+
+import android.view.MotionEvent;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Touch stream and settle cycle through a real SwipeLayout, on Robolectric.
+ * Absolute numbers include Robolectric overhead, compare them between revisions only.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = com.xaqwerx.swipelayout.benchmark.BuildConfig.class, sdk = 25)
+public class GestureBenchmark {
+
+	private static final int WARM_UP = 5000;
+	private static final int ITERATIONS = 50000;
+	private static final int SETTLE_ITERATIONS = 200;
+	private static final int MOVES_PER_FRAME = 4;
+
+	private FrameLayout parent;
+	private SwipeLayout layout;
+	private MotionEvent event;
+
+	@Before
+	public void setUp() throws Exception {
+		parent = new FrameLayout(RuntimeEnvironment.application);
+		layout = new SwipeLayout(RuntimeEnvironment.application);
+		parent.addView(layout, new FrameLayout.LayoutParams(FrameLayout.LayoutParams.MATCH_PARENT, 200));
+		layoutParent();
+		ShadowLooper.idleMainLooper();
+
+		layout.addPosition(new SwipeLayout.StopPosition(SwipeLayout.SwipeToPosition.TO_TOP));
+		layout.addPosition(new SwipeLayout.StopPosition(SwipeLayout.SwipeToPosition.TO_POSITION, 400));
+		layout.addPosition(new SwipeLayout.StopPosition(SwipeLayout.SwipeToPosition.TO_BOTTOM));
+
+		event = MotionEvent.obtain(0, 0, MotionEvent.ACTION_DOWN, 0, 190, 0);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		event.recycle();
+	}
+
+	@Test
+	public void moveStream() throws Exception {
+		for (SwipeLayout.DragMode dragMode : SwipeLayout.DragMode.values()) {
+			layout.setDragMode(dragMode);
+			touch(layout.getActionContainer(), MotionEvent.ACTION_DOWN, 190);
+			BenchmarkRunner.run("ACTION_MOVE " + dragMode, WARM_UP, ITERATIONS, new BenchmarkRunner.Operation() {
+				@Override
+				public void run(int iteration) {
+					touch(layout, MotionEvent.ACTION_MOVE, 100 + iteration % 300);
+				}
+			});
+			touch(layout, MotionEvent.ACTION_UP, 190);
+			ShadowLooper.idleMainLooper(1, TimeUnit.SECONDS);
+		}
+	}
+
+	/**
+	 * main thread work of one drag frame: the move and the measure / layout pass it causes, per drag mode.
+	 * A detached layout is never laid out by the framework, so the pass is run here as the next frame would
+	 */
+	@Test
+	public void moveFrame() throws Exception {
+		for (SwipeLayout.DragMode dragMode : SwipeLayout.DragMode.values()) {
+			layout.setDragMode(dragMode);
+			touch(layout.getActionContainer(), MotionEvent.ACTION_DOWN, 190);
+			BenchmarkRunner.run("ACTION_MOVE + layout pass " + dragMode, WARM_UP / 10, ITERATIONS / 10, new BenchmarkRunner.Operation() {
+				@Override
+				public void run(int iteration) {
+					touch(layout, MotionEvent.ACTION_MOVE, 100 + iteration % 300);
+					if (parent.isLayoutRequested()) {
+						layoutParent();
+					}
+				}
+			});
+			touch(layout, MotionEvent.ACTION_UP, 190);
+			ShadowLooper.idleMainLooper(1, TimeUnit.SECONDS);
+			layoutParent();
+		}
+	}
+
+	/**
+	 * high rate touch panel: 4 moves per 16 ms frame, applied one by one or once per frame
+	 */
+	@Test
+	public void moveStreamPerFrame() throws Exception {
+		for (boolean isCoalescing : new boolean[]{false, true}) {
+			layout.setMoveCoalescing(isCoalescing);
+			touch(layout.getActionContainer(), MotionEvent.ACTION_DOWN, 190);
+			BenchmarkRunner.run("4 x ACTION_MOVE + frame, coalescing " + isCoalescing, WARM_UP / 10, ITERATIONS / 10, new BenchmarkRunner.Operation() {
+				@Override
+				public void run(int iteration) {
+					for (int i = 0; i < MOVES_PER_FRAME; i++) {
+						touch(layout, MotionEvent.ACTION_MOVE, 100 + (iteration * MOVES_PER_FRAME + i) % 300);
+					}
+					ShadowLooper.idleMainLooper(16, TimeUnit.MILLISECONDS);
+				}
+			});
+			touch(layout, MotionEvent.ACTION_UP, 190);
+			ShadowLooper.idleMainLooper(1, TimeUnit.SECONDS);
+		}
+		layout.setMoveCoalescing(false);
+	}
+
+	@Test
+	public void settleCycle() throws Exception {
+		for (final SwipeLayout.SettleMode settleMode : SwipeLayout.SettleMode.values()) {
+			layout.setSettleMode(settleMode);
+			BenchmarkRunner.run("drag + settle " + settleMode, SETTLE_ITERATIONS / 10, SETTLE_ITERATIONS, new BenchmarkRunner.Operation() {
+				@Override
+				public void run(int iteration) {
+					float target = iteration % 2 == 0 ? 600 : 100;
+					touch(layout.getActionContainer(), MotionEvent.ACTION_DOWN, 190);
+					touch(layout, MotionEvent.ACTION_MOVE, 190);
+					touch(layout, MotionEvent.ACTION_MOVE, target);
+					touch(layout, MotionEvent.ACTION_UP, target);
+					ShadowLooper.idleMainLooper(1, TimeUnit.SECONDS);
+				}
+			});
+		}
+	}
+
+	private void layoutParent() {
+		parent.measure(View.MeasureSpec.makeMeasureSpec(400, View.MeasureSpec.EXACTLY), View.MeasureSpec.makeMeasureSpec(1000, View.MeasureSpec.EXACTLY));
+		parent.layout(0, 0, 400, 1000);
+	}
+
+	private void touch(View view, int action, float y) {
+		event.setAction(action);
+		event.setLocation(0, y);
+		layout.onTouch(view, event);
+	}
+}
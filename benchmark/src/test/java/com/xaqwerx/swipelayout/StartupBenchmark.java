@@ -0,0 +1,97 @@
+package com.xaqwerx.swipelayout;
+
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.RelativeLayout;
+import android.widget.TextView;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+/**
+ * Creation and first layout of a panel with content children, on Robolectric.
+ * Children must be in the content container before the first layout pass, no posted re-parenting.
+ * The baseline replays the former startup: a first pass with the children outside the content container,
+ * then the posted removeView / addView moves and a second pass.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = com.xaqwerx.swipelayout.benchmark.BuildConfig.class, sdk = 25)
+public class StartupBenchmark {
+
+	private static final int CHILD_COUNT = 20;
+	private static final int WARM_UP = 200;
+	private static final int ITERATIONS = 2000;
+
+	@Test
+	public void childrenAreInContentBeforeFirstLayout() throws Exception {
+		SwipeLayout layout = createLayout();
+
+		assertEquals(CHILD_COUNT, layout.getContentContainer().getChildCount());
+		assertEquals(2, layout.getChildCount());
+	}
+
+	@Test
+	public void createAndFirstLayout() throws Exception {
+		BenchmarkRunner.run("create + first layout ( " + CHILD_COUNT + " children )", WARM_UP, ITERATIONS, new BenchmarkRunner.Operation() {
+			@Override
+			public void run(int iteration) {
+				SwipeLayout layout = createLayout();
+				FrameLayout parent = new FrameLayout(RuntimeEnvironment.application);
+				parent.addView(layout, new FrameLayout.LayoutParams(FrameLayout.LayoutParams.MATCH_PARENT, 400));
+				layoutParent(parent);
+			}
+		});
+	}
+
+	@Test
+	public void createAndFirstLayout_formerPostedReparenting() throws Exception {
+		BenchmarkRunner.run("baseline: create + first layout + posted re-parenting ( " + CHILD_COUNT + " children )", WARM_UP, ITERATIONS, new BenchmarkRunner.Operation() {
+			@Override
+			public void run(int iteration) {
+				FrameLayout parent = new FrameLayout(RuntimeEnvironment.application);
+				SwipeLayout layout = new SwipeLayout(RuntimeEnvironment.application);
+				parent.addView(layout, new FrameLayout.LayoutParams(FrameLayout.LayoutParams.MATCH_PARENT, 400));
+
+				// addView now always lands in the content container, so the children sit in a sibling for the first pass
+				RelativeLayout outside = new RelativeLayout(RuntimeEnvironment.application);
+				addChildren(outside);
+				parent.addView(outside, new FrameLayout.LayoutParams(FrameLayout.LayoutParams.MATCH_PARENT, 400));
+				layoutParent(parent);
+
+				// former posted Runnable, run inline: one removeView / addView per child, then the second pass
+				while (outside.getChildCount() > 0) {
+					View child = outside.getChildAt(0);
+					outside.removeView(child);
+					layout.addView(child);
+				}
+				parent.removeView(outside);
+				layoutParent(parent);
+			}
+		});
+	}
+
+	private static SwipeLayout createLayout() {
+		SwipeLayout layout = new SwipeLayout(RuntimeEnvironment.application);
+		addChildren(layout);
+		return layout;
+	}
+
+	private static void addChildren(ViewGroup group) {
+		for (int i = 0; i < CHILD_COUNT; i++) {
+			TextView child = new TextView(RuntimeEnvironment.application);
+			child.setText("child " + i);
+			group.addView(child);
+		}
+	}
+
+	private static void layoutParent(FrameLayout parent) {
+		parent.measure(View.MeasureSpec.makeMeasureSpec(400, View.MeasureSpec.EXACTLY), View.MeasureSpec.makeMeasureSpec(1000, View.MeasureSpec.EXACTLY));
+		parent.layout(0, 0, 400, 1000);
+	}
+}
@@ -0,0 +1,51 @@
+package com.xaqwerx.swipelayout;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link PanelStateMachine} gestures without a view, plain JVM
+ */
+public class StateMachineBenchmark {
+
+	private static final int STOP_COUNT = 50;
+	private static final int WARM_UP = 200000;
+	private static final int ITERATIONS = 5000000;
+
+	private static final float MAX_HEIGHT = 2000f;
+
+	private final PanelStateMachine machine = new PanelStateMachine();
+
+	private int sink;
+
+	@Before
+	public void setUp() throws Exception {
+		machine.resetStops(STOP_COUNT);
+		for (int i = 0; i < STOP_COUNT; i++) {
+			float height = (i * 37) % MAX_HEIGHT;
+			machine.addStop(height, (int) height, height);
+		}
+	}
+
+	@Test
+	public void gestures() throws Exception {
+		BenchmarkRunner.run("PanelStateMachine.release", WARM_UP, ITERATIONS, new BenchmarkRunner.Operation() {
+			@Override
+			public void run(int iteration) {
+				sink += machine.release((iteration * 7) % MAX_HEIGHT);
+			}
+		});
+		BenchmarkRunner.run("PanelStateMachine.click", WARM_UP, ITERATIONS, new BenchmarkRunner.Operation() {
+			@Override
+			public void run(int iteration) {
+				sink += machine.click((iteration * 7) % MAX_HEIGHT);
+			}
+		});
+		BenchmarkRunner.run("PanelStateMachine.settled", WARM_UP, ITERATIONS, new BenchmarkRunner.Operation() {
+			@Override
+			public void run(int iteration) {
+				sink += machine.settled((iteration * 7) % MAX_HEIGHT, true) ? 1 : 0;
+			}
+		});
+	}
+}
@@ -0,0 +1,90 @@
+package com.xaqwerx.swipelayout;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Stop resolution and closest / next lookups, plain JVM
+ */
+public class StopResolutionBenchmark {
+
+	private static final int STOP_COUNT = 50;
+	private static final int WARM_UP = 200000;
+	private static final int ITERATIONS = 2000000;
+
+	private static final float MIN_HEIGHT = 60f;
+	private static final float MAX_HEIGHT = 2000f;
+
+	private final SwipeLayout.StopPosition[] positions = new SwipeLayout.StopPosition[STOP_COUNT];
+	private final StopIndex index = new StopIndex();
+
+	private int sink;
+
+	@Before
+	public void setUp() throws Exception {
+		positions[0] = new SwipeLayout.StopPosition(SwipeLayout.SwipeToPosition.TO_TOP);
+		positions[1] = new SwipeLayout.StopPosition(SwipeLayout.SwipeToPosition.TO_BOTTOM);
+		for (int i = 2; i < STOP_COUNT; i++) {
+			positions[i] = i % 3 == 0
+					? new SwipeLayout.StopPosition(SwipeLayout.SwipeToPosition.TO_END_OF, i)
+					: new SwipeLayout.StopPosition(SwipeLayout.SwipeToPosition.TO_POSITION, i * 37);
+		}
+		rebuildIndex(1);
+	}
+
+	@Test
+	public void resolve() throws Exception {
+		BenchmarkRunner.run("StopPosition.resolve ( new generation )", WARM_UP, ITERATIONS, new BenchmarkRunner.Operation() {
+			@Override
+			public void run(int iteration) {
+				positions[iteration % STOP_COUNT].resolve(MAX_HEIGHT, MIN_HEIGHT, iteration % 500, 40, iteration + 2);
+			}
+		});
+		BenchmarkRunner.run("StopPosition.resolve ( same generation )", WARM_UP, ITERATIONS, new BenchmarkRunner.Operation() {
+			@Override
+			public void run(int iteration) {
+				positions[iteration % STOP_COUNT].resolve(MAX_HEIGHT, MIN_HEIGHT, 0, 40, 1);
+			}
+		});
+	}
+
+	@Test
+	public void indexRebuild() throws Exception {
+		BenchmarkRunner.run("StopIndex rebuild ( " + STOP_COUNT + " stops )", WARM_UP / 50, ITERATIONS / 50, new BenchmarkRunner.Operation() {
+			@Override
+			public void run(int iteration) {
+				rebuildIndex(iteration + 2);
+			}
+		});
+	}
+
+	@Test
+	public void lookups() throws Exception {
+		BenchmarkRunner.run("StopIndex.closest", WARM_UP, ITERATIONS, new BenchmarkRunner.Operation() {
+			@Override
+			public void run(int iteration) {
+				sink += index.closest(iteration % (int) MAX_HEIGHT);
+			}
+		});
+		BenchmarkRunner.run("StopIndex.nextDown", WARM_UP, ITERATIONS, new BenchmarkRunner.Operation() {
+			@Override
+			public void run(int iteration) {
+				sink += index.nextDown(positions[iteration % STOP_COUNT].getDistanceFromTop());
+			}
+		});
+		BenchmarkRunner.run("StopIndex.nextUp", WARM_UP, ITERATIONS, new BenchmarkRunner.Operation() {
+			@Override
+			public void run(int iteration) {
+				sink += index.nextUp(positions[iteration % STOP_COUNT].getDistanceFromTop());
+			}
+		});
+	}
+
+	private void rebuildIndex(int generation) {
+		index.reset(STOP_COUNT);
+		for (int i = 0; i < STOP_COUNT; i++) {
+			positions[i].resolve(MAX_HEIGHT, MIN_HEIGHT, i * 30, 40, generation);
+			index.add(positions[i].getAnchor(), positions[i].getDistanceFromTop(), positions[i].getResolvedHeight());
+		}
+	}
+}
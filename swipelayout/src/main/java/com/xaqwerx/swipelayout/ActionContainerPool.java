@@ -0,0 +1,77 @@
+package com.xaqwerx.swipelayout;
+
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.util.SparseArray;
+import android.view.View;
+
+import java.util.ArrayList;
+
+/**
+ * Detached action containers for reuse between SwipeLayouts of one screen ( e.g. RecyclerView rows or mode switches ).
+ * Containers are kept by the resource they were styled with, so a reused one needs no restyling.
+ * Views hold their Context: use one pool per Activity and clear it when the screen is gone.
+ * A pool provided by the Context ( see {@link Owner} ) is already used for the first container of a new layout.
+ */
+public class ActionContainerPool {
+
+	/**
+	 * Implemented by the Activity ( or a ContextWrapper ) SwipeLayouts are created with, so rows created while
+	 * a list flings take their first action container from the pool instead of allocating one
+	 */
+	public interface Owner {
+
+		ActionContainerPool getActionContainerPool();
+	}
+
+	private static final int DEFAULT_MAX_PER_TYPE = 8;
+
+	private final SparseArray<ArrayList<View>> scrap = new SparseArray<>();
+	private final int maxPerType;
+
+	public ActionContainerPool() {
+		this(DEFAULT_MAX_PER_TYPE);
+	}
+
+	public ActionContainerPool(int maxPerType) {
+		this.maxPerType = maxPerType;
+	}
+
+	public void clear() {
+		scrap.clear();
+	}
+
+	/**
+	 * @return pool of the first {@link Owner} in the Context chain, null if there is none
+	 */
+	static ActionContainerPool from(Context context) {
+		while (context != null) {
+			if (context instanceof Owner)
+				return ((Owner) context).getActionContainerPool();
+			context = context instanceof ContextWrapper ? ((ContextWrapper) context).getBaseContext() : null;
+		}
+		return null;
+	}
+
+	/**
+	 * @param type resource the container was styled with
+	 * @return detached container, null if none is available
+	 */
+	View acquire(int type) {
+		ArrayList<View> views = scrap.get(type);
+		if (views == null || views.isEmpty())
+			return null;
+		return views.remove(views.size() - 1);
+	}
+
+	void release(int type, View view) {
+		ArrayList<View> views = scrap.get(type);
+		if (views == null) {
+			views = new ArrayList<>(maxPerType);
+			scrap.put(type, views);
+		}
+		if (views.size() < maxPerType) {
+			views.add(view);
+		}
+	}
+}
@@ -0,0 +1,113 @@
+package com.xaqwerx.swipelayout;
+
+/**
+ * Damped spring ( mass = 1 ) used for physics based settling of the panel height.
+ * Plain java, stepped by the owner from frame callbacks, target can be changed while running.
+ */
+class PanelSpring {
+
+	/**
+	 * exponential friction used to project fling distance: v(t) = v0 * e^(-FRICTION * t)
+	 */
+	static final float FLING_FRICTION = 4.2f;
+
+	static final float DEFAULT_STIFFNESS = 400f;
+	static final float DEFAULT_DAMPING_RATIO = 0.9f;
+
+	private static final float MAX_STEP_SECONDS = 0.004f;
+	private static final float REST_DISTANCE = 0.5f;
+	private static final float REST_VELOCITY = 10f;
+
+	private float stiffness = DEFAULT_STIFFNESS;
+	private float dampingRatio = DEFAULT_DAMPING_RATIO;
+
+	private float position;
+	private float velocity;
+	private float target;
+	private boolean running;
+
+	void setStiffness(float stiffness) {
+		if (stiffness <= 0)
+			throw new IllegalArgumentException("Spring stiffness must be positive");
+		this.stiffness = stiffness;
+	}
+
+	void setDampingRatio(float dampingRatio) {
+		if (dampingRatio < 0)
+			throw new IllegalArgumentException("Spring damping ratio can't be negative");
+		this.dampingRatio = dampingRatio;
+	}
+
+	float getStiffness() {
+		return stiffness;
+	}
+
+	float getDampingRatio() {
+		return dampingRatio;
+	}
+
+	/**
+	 * starts from given state, or only retargets keeping current position and velocity if already running
+	 */
+	void start(float position, float velocity, float target) {
+		if (!running) {
+			this.position = position;
+			this.velocity = velocity;
+		}
+		this.target = target;
+		this.running = true;
+	}
+
+	void stop() {
+		running = false;
+		velocity = 0;
+	}
+
+	boolean isRunning() {
+		return running;
+	}
+
+	float getPosition() {
+		return position;
+	}
+
+	float getVelocity() {
+		return velocity;
+	}
+
+	float getTarget() {
+		return target;
+	}
+
+	/**
+	 * advances the spring, sub-stepping so big frame gaps stay stable
+	 *
+	 * @return true while the spring is still moving
+	 */
+	boolean step(float seconds) {
+		if (!running)
+			return false;
+
+		float damping = 2 * dampingRatio * (float) Math.sqrt(stiffness);
+		while (seconds > 0) {
+			float dt = Math.min(seconds, MAX_STEP_SECONDS);
+			float acceleration = -stiffness * (position - target) - damping * velocity;
+			velocity += acceleration * dt;
+			position += velocity * dt;
+			seconds -= dt;
+		}
+
+		if (Math.abs(position - target) < REST_DISTANCE && Math.abs(velocity) < REST_VELOCITY) {
+			position = target;
+			stop();
+		}
+		return running;
+	}
+
+	/**
+	 * where a fling with given velocity ( px/s ) would come to rest from the given position
+	 */
+	static float projectFling(float position, float velocity) {
+		return position + velocity / FLING_FRICTION;
+	}
+}
@@ -0,0 +1,146 @@
+package com.xaqwerx.swipelayout;
+
+/**
+ * Stop selection of {@link SwipeLayout} without a view: resolved stops, current stop and BUTTON mode direction in,
+ * target stops and button state out. Plain java, deterministic and allocation free once the stop capacity is reached,
+ * so the same gestures can be run on the JVM ( tests, benchmarks ) as in the layout.
+ * Stops are referred to by list index, {@link #NONE} if there is none.
+ */
+public final class PanelStateMachine {
+
+	public static final int NONE = StopIndex.NONE;
+
+	private final StopIndex stops = new StopIndex();
+
+	private int currentStop = NONE;
+
+	/**
+	 * BUTTON mode direction: next click goes up and the button shows the "less" label
+	 */
+	private boolean isUp;
+
+	/**
+	 * clears the stops, current stop and direction are kept ( stop list changes remap the current stop )
+	 */
+	public void resetStops(int capacity) {
+		stops.reset(capacity);
+	}
+
+	/**
+	 * adds next stop of the list
+	 *
+	 * @param anchor         value release positions are compared with
+	 * @param distanceFromTop orders the stops for next up / next down
+	 * @param height         height the panel settles to
+	 */
+	public void addStop(float anchor, int distanceFromTop, float height) {
+		stops.add(anchor, distanceFromTop, height);
+	}
+
+	public int getStopCount() {
+		return stops.size();
+	}
+
+	public float getStopHeight(int stop) {
+		return stops.getHeight(stop);
+	}
+
+	public int getCurrentStop() {
+		return currentStop;
+	}
+
+	public void setCurrentStop(int stop) {
+		this.currentStop = stop;
+	}
+
+	public boolean isUp() {
+		return isUp;
+	}
+
+	public void setUp(boolean isUp) {
+		this.isUp = isUp;
+	}
+
+	/**
+	 * @return stop whose anchor is closest to value
+	 */
+	public int closest(float value) {
+		return stops.closest(value);
+	}
+
+	/**
+	 * @return closest stop further from top than the given one
+	 */
+	public int nextDown(int stop) {
+		return stops.nextDown(stops.getTop(stop));
+	}
+
+	/**
+	 * @return closest stop nearer to top than the given one
+	 */
+	public int nextUp(int stop) {
+		return stops.nextUp(stops.getTop(stop));
+	}
+
+	/**
+	 * SWIPE mode release ( or end of a nested scroll ): settles to the stop closest to value
+	 *
+	 * @param value release position, fling already projected
+	 * @return new current stop, current stop is kept if there are no stops
+	 */
+	public int release(float value) {
+		int stop = stops.closest(value);
+		if (stop != NONE) {
+			currentStop = stop;
+		}
+		return stop;
+	}
+
+	/**
+	 * BUTTON mode click: moves one stop in the current direction from the stop closest to value.
+	 * Direction turns once there is no stop further that way
+	 *
+	 * @return new current stop, current stop is kept if there are no stops
+	 */
+	public int click(float value) {
+		int stop = stops.closest(value);
+		if (stop == NONE)
+			return NONE;
+
+		int next = isUp ? nextUp(stop) : nextDown(stop);
+		if (next == NONE) {
+			isUp = !isUp;
+		}
+		else {
+			stop = next;
+		}
+		currentStop = stop;
+		return stop;
+	}
+
+	/**
+	 * Panel came to rest at height: current stop is the closest one and BUTTON mode direction turns
+	 * if there is no stop further in it
+	 *
+	 * @param isButton direction is only checked in BUTTON mode
+	 * @return true if current stop or direction changed
+	 */
+	public boolean settled(float height, boolean isButton) {
+		int stop = stops.closest(height);
+		if (stop == NONE)
+			return false;
+
+		boolean wasUp = isUp;
+		boolean isStopChanged = stop != currentStop;
+		currentStop = stop;
+		if (isButton) {
+			if (!isUp && nextDown(stop) == NONE) {
+				isUp = true;
+			}
+			else if (isUp && nextUp(stop) == NONE) {
+				isUp = false;
+			}
+		}
+		return isStopChanged || wasUp != isUp;
+	}
+}
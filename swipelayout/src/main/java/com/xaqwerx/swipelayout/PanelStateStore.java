@@ -0,0 +1,135 @@
+package com.xaqwerx.swipelayout;
+
+import java.util.Arrays;
+
+/**
+ * Expanded / collapsed state of recycled {@link SwipeLayout} rows, kept outside of the views and keyed by
+ * stable adapter id ( see {@link SwipeLayout#bindState(long, PanelStateStore)} ).
+ * Open addressing map of primitive longs, lookups and updates are O(1) and don't allocate.
+ */
+public class PanelStateStore {
+
+	/**
+	 * ids are stable adapter ids, this one is reserved for empty slots
+	 */
+	private static final long EMPTY_KEY = Long.MIN_VALUE;
+
+	private long[] keys;
+	private long[] values;
+	private int size;
+
+	public PanelStateStore() {
+		this(16);
+	}
+
+	/**
+	 * @param expectedSize number of rows expected to have state, avoids growing
+	 */
+	public PanelStateStore(int expectedSize) {
+		int capacity = 4;
+		while (capacity < expectedSize * 2) {
+			capacity <<= 1;
+		}
+		allocate(capacity);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean contains(long id) {
+		return id != EMPTY_KEY && keys[slotOf(id)] == id;
+	}
+
+	/**
+	 * forgets state of one row, it will bind collapsed next time
+	 */
+	public void remove(long id) {
+		if (id == EMPTY_KEY)
+			return;
+
+		int slot = slotOf(id);
+		if (keys[slot] != id)
+			return;
+
+		// backward shift deletion keeps probe sequences intact without tombstones
+		int mask = keys.length - 1;
+		int next = (slot + 1) & mask;
+		while (keys[next] != EMPTY_KEY) {
+			int home = hash(keys[next]) & mask;
+			if (((next - home) & mask) >= ((next - slot) & mask)) {
+				keys[slot] = keys[next];
+				values[slot] = values[next];
+				slot = next;
+			}
+			next = (next + 1) & mask;
+		}
+		keys[slot] = EMPTY_KEY;
+		size--;
+	}
+
+	public void clear() {
+		Arrays.fill(keys, EMPTY_KEY);
+		size = 0;
+	}
+
+	long get(long id, long fallback) {
+		if (id == EMPTY_KEY)
+			return fallback;
+
+		int slot = slotOf(id);
+		return keys[slot] == id ? values[slot] : fallback;
+	}
+
+	void put(long id, long value) {
+		if (id == EMPTY_KEY)
+			throw new IllegalArgumentException("Id " + EMPTY_KEY + " is reserved");
+
+		int slot = slotOf(id);
+		if (keys[slot] != id) {
+			if ((size + 1) * 2 > keys.length) {
+				grow();
+				slot = slotOf(id);
+			}
+			keys[slot] = id;
+			size++;
+		}
+		values[slot] = value;
+	}
+
+	/**
+	 * @return slot holding the id, or the empty slot where it would be inserted
+	 */
+	private int slotOf(long id) {
+		int mask = keys.length - 1;
+		int slot = hash(id) & mask;
+		while (keys[slot] != EMPTY_KEY && keys[slot] != id) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void grow() {
+		long[] oldKeys = keys;
+		long[] oldValues = values;
+		allocate(oldKeys.length * 2);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != EMPTY_KEY) {
+				int slot = slotOf(oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		values = new long[capacity];
+		Arrays.fill(keys, EMPTY_KEY);
+	}
+
+	private static int hash(long id) {
+		long mixed = id * 0x9E3779B97F4A7C15L;
+		return (int) (mixed ^ (mixed >>> 32));
+	}
+}
@@ -0,0 +1,116 @@
+package com.xaqwerx.swipelayout;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+
+/**
+ * Batch change of {@link SwipeLayout} stops, from {@link SwipeLayout#editPositions()}.
+ * Nothing reaches the layout until {@link #commit()}: stops are validated, de-duplicated and sorted once
+ * ( stops depending on layout only grouped ), then resolved in one pass.
+ */
+public class PositionsEditor {
+
+	/**
+	 * TO_TOP first and TO_BOTTOM last, TO_POSITION by px. TO_TOP_OF / TO_END_OF are only grouped by type:
+	 * they are compared by view id, which says nothing about where they resolve, just so equal ones end up
+	 * next to each other. Same stops are ordered by nested scroll override for the same reason.
+	 * Mostly sorted input keeps the stop index rebuild close to linear
+	 */
+	private static final Comparator<SwipeLayout.StopPosition> ORDER = new Comparator<SwipeLayout.StopPosition>() {
+		@Override
+		public int compare(SwipeLayout.StopPosition first, SwipeLayout.StopPosition second) {
+			int byType = rank(first.getType()) - rank(second.getType());
+			if (byType != 0)
+				return byType;
+			if (first.getConfigValue() != second.getConfigValue())
+				return first.getConfigValue() < second.getConfigValue() ? -1 : 1;
+			return modeRank(first.getNestedScrollMode()) - modeRank(second.getNestedScrollMode());
+		}
+	};
+
+	private final SwipeLayout layout;
+	private final ArrayList<SwipeLayout.StopPosition> positions;
+	private boolean isSettleToNearest;
+
+	PositionsEditor(SwipeLayout layout, ArrayList<SwipeLayout.StopPosition> positions) {
+		this.layout = layout;
+		this.positions = new ArrayList<>(positions);
+	}
+
+	public PositionsEditor clear() {
+		positions.clear();
+		return this;
+	}
+
+	public PositionsEditor add(SwipeLayout.StopPosition position) {
+		if (position == null)
+			throw new IllegalArgumentException("Stop position can't be null");
+		if (position.getType() == SwipeLayout.SwipeToPosition.TO_POSITION && position.getConfigValue() < 0)
+			throw new IllegalArgumentException("TO_POSITION stop can't be negative: " + position.getConfigValue());
+
+		positions.add(position);
+		return this;
+	}
+
+	public PositionsEditor addAll(Collection<SwipeLayout.StopPosition> positions) {
+		for (SwipeLayout.StopPosition position : positions) {
+			add(position);
+		}
+		return this;
+	}
+
+	/**
+	 * removes every stop equal to the given one
+	 */
+	public PositionsEditor remove(SwipeLayout.StopPosition position) {
+		for (int i = positions.size() - 1; i >= 0; i--) {
+			if (positions.get(i).equals(position)) {
+				positions.remove(i);
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * @param isSettleToNearest if the stop the panel is at isn't there after the commit, animate to the nearest one
+	 */
+	public PositionsEditor settleToNearest(boolean isSettleToNearest) {
+		this.isSettleToNearest = isSettleToNearest;
+		return this;
+	}
+
+	/**
+	 * Applies all changes at once. Stops are resolved right away if the layout was already laid out,
+	 * otherwise with its next layout pass
+	 */
+	public void commit() {
+		Collections.sort(positions, ORDER);
+		for (int i = positions.size() - 1; i > 0; i--) {
+			if (positions.get(i).equals(positions.get(i - 1))) {
+				positions.remove(i);
+			}
+		}
+		layout.commitPositions(positions, isSettleToNearest);
+	}
+
+	private static int modeRank(SwipeLayout.NestedScrollMode mode) {
+		return mode == null ? -1 : mode.ordinal();
+	}
+
+	private static int rank(SwipeLayout.SwipeToPosition type) {
+		switch (type) {
+			case TO_TOP:
+				return 0;
+			case TO_POSITION:
+				return 1;
+			case TO_TOP_OF:
+				return 2;
+			case TO_END_OF:
+				return 3;
+			default:
+				return 4;
+		}
+	}
+}
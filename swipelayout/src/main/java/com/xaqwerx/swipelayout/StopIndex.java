@@ -0,0 +1,164 @@
+package com.xaqwerx.swipelayout;
+
+/**
+ * Resolved stop positions sorted for binary search lookups.
+ * Stops are added in list order, results are list indexes; on equal distance the lowest list index wins,
+ * same as a linear scan over the list. Nothing is allocated after capacity is reached.
+ * Resolved values are copied here, so a {@link SwipeLayout.StopPosition} can be shared between layouts.
+ */
+final class StopIndex {
+
+	static final int NONE = -1;
+
+	/**
+	 * value the finger position is compared with, and its list index, sorted by value
+	 */
+	private float[] anchors = new float[0];
+	private int[] anchorOrder = new int[0];
+
+	/**
+	 * distance from top used for next up / next down, and its list index, sorted by value
+	 */
+	private int[] tops = new int[0];
+	private int[] topOrder = new int[0];
+
+	/**
+	 * resolved values by list index
+	 */
+	private int[] stopTops = new int[0];
+	private float[] stopHeights = new float[0];
+
+	private int size;
+
+	void reset(int capacity) {
+		if (anchors.length < capacity) {
+			anchors = new float[capacity];
+			anchorOrder = new int[capacity];
+			tops = new int[capacity];
+			topOrder = new int[capacity];
+			stopTops = new int[capacity];
+			stopHeights = new float[capacity];
+		}
+		size = 0;
+	}
+
+	/**
+	 * adds next stop of the list, keeps both arrays sorted ( insertion keeps equal values in list order )
+	 */
+	void add(float anchor, int top, float height) {
+		if (size == anchors.length)
+			throw new IllegalStateException("StopIndex capacity exceeded, call reset() with the stop count");
+
+		int index = size;
+		stopTops[index] = top;
+		stopHeights[index] = height;
+
+		int i = size - 1;
+		while (i >= 0 && anchors[i] > anchor) {
+			anchors[i + 1] = anchors[i];
+			anchorOrder[i + 1] = anchorOrder[i];
+			i--;
+		}
+		anchors[i + 1] = anchor;
+		anchorOrder[i + 1] = index;
+
+		i = size - 1;
+		while (i >= 0 && tops[i] > top) {
+			tops[i + 1] = tops[i];
+			topOrder[i + 1] = topOrder[i];
+			i--;
+		}
+		tops[i + 1] = top;
+		topOrder[i + 1] = index;
+
+		size++;
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @return height to swipe to of the stop at list index
+	 */
+	float getHeight(int stop) {
+		return stopHeights[stop];
+	}
+
+	/**
+	 * @return distance from top of the stop at list index
+	 */
+	int getTop(int stop) {
+		return stopTops[stop];
+	}
+
+	/**
+	 * @return list index of the stop whose anchor is closest to value, or {@link #NONE}
+	 */
+	int closest(float value) {
+		if (size == 0)
+			return NONE;
+
+		int upper = firstAnchorNotBelow(value);
+		if (upper == size)
+			return anchorOrder[firstAnchorNotBelow(anchors[size - 1])];
+		if (upper == 0)
+			return anchorOrder[0];
+
+		int lower = firstAnchorNotBelow(anchors[upper - 1]);
+		float upperDistance = Math.abs(anchors[upper] - value);
+		float lowerDistance = Math.abs(anchors[lower] - value);
+		if (upperDistance == lowerDistance)
+			return Math.min(anchorOrder[upper], anchorOrder[lower]);
+
+		return upperDistance < lowerDistance ? anchorOrder[upper] : anchorOrder[lower];
+	}
+
+	/**
+	 * @return list index of the closest stop strictly below ( bigger distance from top ), or {@link #NONE}
+	 */
+	int nextDown(int top) {
+		int next = firstTopAbove(top);
+		return next == size ? NONE : topOrder[next];
+	}
+
+	/**
+	 * @return list index of the closest stop strictly above ( smaller distance from top ), or {@link #NONE}
+	 */
+	int nextUp(int top) {
+		int notBelow = firstTopAbove(top - 1);
+		if (notBelow == 0)
+			return NONE;
+		return topOrder[firstTopAbove(tops[notBelow - 1] - 1)];
+	}
+
+	private int firstAnchorNotBelow(float value) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (anchors[middle] < value) {
+				low = middle + 1;
+			}
+			else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private int firstTopAbove(int value) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (tops[middle] <= value) {
+				low = middle + 1;
+			}
+			else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+}
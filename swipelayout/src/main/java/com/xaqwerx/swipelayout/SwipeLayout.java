@@ -6,73 +6,263 @@ import android.animation.ValueAnimator;
 import android.annotation.TargetApi;
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.os.AsyncTask;
 import android.os.Build;
-import android.os.Bundle;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.Parcel;
 import android.os.Parcelable;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.support.annotation.LayoutRes;
 import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
 import android.support.v4.content.ContextCompat;
+import android.support.v4.view.AsyncLayoutInflater;
+import android.support.v4.view.NestedScrollingChild;
+import android.support.v4.view.NestedScrollingChildHelper;
+import android.support.v4.view.NestedScrollingParent;
+import android.support.v4.view.NestedScrollingParentHelper;
+import android.support.v4.view.OnApplyWindowInsetsListener;
+import android.support.v4.view.ScrollingView;
+import android.support.v4.view.ViewCompat;
+import android.support.v4.view.WindowInsetsCompat;
 import android.support.v7.widget.AppCompatImageView;
 import android.support.v7.widget.AppCompatTextView;
 import android.util.AttributeSet;
-import android.util.Log;
+import android.view.Choreographer;
 import android.view.ContextThemeWrapper;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.ViewParent;
+import android.view.WindowManager;
+import android.view.VelocityTracker;
+import android.view.animation.AccelerateDecelerateInterpolator;
+import android.view.animation.Interpolator;
+import android.widget.AbsListView;
 import android.widget.RelativeLayout;
+import android.widget.ScrollView;
 import android.widget.TextView;
 
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.concurrent.Executor;
 
-public class SwipeLayout extends RelativeLayout implements View.OnTouchListener {
+public class SwipeLayout extends ViewGroup implements View.OnTouchListener, NestedScrollingParent, NestedScrollingChild {
 
-	private static final String STATE_BUNDLE_KEY = "STATE_BUNDLE_KEY";
-	private static final String STATE_POSITIONS_KEY = "STATE_POSITIONS_KEY";
-	private static final String STATE_CLOSEST_KEY = "STATE_CLOSEST_KEY";
+	/**
+	 * systrace sections, off until enabled by the app: apps get the release build of the library,
+	 * so its BuildConfig can't tell a debug build of the app
+	 */
+	private static boolean sTraceSections;
 
 
+	/**
+	 * "not set" value of resource and dimension fields below
+	 */
+	private static final int UNSET = -1;
+
 	/**
 	 * BUTTON or SWIPE mode ( by ordinal value )
 	 */
-	private Integer mMode;
+	private int mMode;
 
 	/**
 	 * styling for button mode
 	 */
-	private Direction mDirection = Direction.DOWN;
-	private Integer mButtonTextMore;
-	private Integer mButtonTextLess;
-	private Integer mButtonStyle;
+	private int mButtonTextMore = UNSET;
+	private int mButtonTextLess = UNSET;
+
+	/**
+	 * label shown by the action container, {@link #UNSET} until set on a new ( or pooled ) one
+	 */
+	private int buttonTextRes = UNSET;
+	private int mButtonStyle = UNSET;
 
 	/**
 	 * styling for swipe mode
 	 */
-	private Integer mActionButtonSrc;
-	private Integer mActionButtonHeight;
+	private int mActionButtonSrc = UNSET;
+	private int mActionButtonHeight = UNSET;
+
+	/**
+	 * how the panel follows the finger in SWIPE mode
+	 */
+	private DragMode mDragMode = DragMode.LAYOUT;
+
+	/**
+	 * how the panel animates to the stop position
+	 */
+	private SettleMode mSettleMode = SettleMode.ANIMATOR;
+
+	/**
+	 * how the content is drawn while the panel moves
+	 */
+	private LayerPolicy mLayerPolicy = LayerPolicy.NONE;
+
+	/**
+	 * how the content is hidden and revealed around min height
+	 */
+	private ContentReveal mContentReveal = ContentReveal.VISIBILITY;
+
+	/**
+	 * how scrolling content moves the panel, stops can override it
+	 */
+	private NestedScrollMode mNestedScrollMode = NestedScrollMode.NONE;
+
+	private static final int DEFAULT_SRC = R.drawable.line;
+	private static final int DEFAULT_SIZE_DP = 20;
+
+	/**
+	 * {@link ContentReveal#CLIP}: content hidden at min height is drawn again only once this much of it is revealed,
+	 * so a finger resting at the threshold doesn't flip it every move
+	 */
+	private static final int REVEAL_HYSTERESIS_DP = 4;
+
+	/**
+	 * same as {@link ValueAnimator} default duration, so both settle modes feel alike
+	 */
+	private static final long SETTLE_DURATION = 300;
 
-	private final Integer DEFAULT_SRC = R.drawable.line;
-	private final Integer DEFAULT_SIZE_DP = 20;
+	/**
+	 * {@link ValueAnimator} default, for settles driven by {@link SwipeLayoutGroup}
+	 */
+	private static final Interpolator SETTLE_INTERPOLATOR = new AccelerateDecelerateInterpolator();
 
 	/**
-	 * value for calculating closest position to swipe to
+	 * value for calculating closest position to swipe to, NaN when not set
 	 */
-	private Float prevYVal;
+	private float prevYVal = Float.NaN;
 
 	/**
-	 * values for checking click event. If in BUTTON mode -> this helps with events;
+	 * values for checking click event. If in BUTTON mode -> this helps with events; NaN when not set
 	 */
-	private Float downYVal;
-	private Float downXVal;
+	private float downYVal = Float.NaN;
+	private float downXVal = Float.NaN;
 	private boolean isClick;
 
 	/**
-	 * values of container min and max values
+	 * move coalescing: last finger position of the frame, applied once from the frame callback; NaN when none is pending
 	 */
-	private Float minHeight;
-	private Float maxHeight;
+	private boolean isMoveCoalescing;
+	private float pendingMoveY = Float.NaN;
+	private boolean isMoveFramePosted;
+	private final Choreographer.FrameCallback moveFrame = new Choreographer.FrameCallback() {
+		@Override
+		public void doFrame(long frameTimeNanos) {
+			isMoveFramePosted = false;
+			applyPendingMove();
+		}
+	};
+
+	/**
+	 * BUTTON mode: stop and label follow where the panel came to rest, requests until it runs share one update
+	 */
+	private boolean isButtonUpdatePosted;
+	private final Runnable buttonUpdate = new Runnable() {
+		@Override
+		public void run() {
+			isButtonUpdatePosted = false;
+			updateButtonState();
+		}
+	};
+
+	/**
+	 * predictive measure: while the content is hidden, it is measured and laid out for the stop the panel
+	 * most likely goes to next, when the main thread is idle
+	 */
+	private boolean isPredictiveMeasure;
+	private boolean isPredictionQueued;
+	private final MessageQueue.IdleHandler predictiveMeasure = new MessageQueue.IdleHandler() {
+		@Override
+		public boolean queueIdle() {
+			isPredictionQueued = false;
+			premeasureNextStop();
+			return false;
+		}
+	};
+
+	/**
+	 * lazy content: layout resource ( or factory ) inflated off the main thread the first time the panel
+	 * expands, or when the main thread is idle. Token drops results of replaced content
+	 */
+	private int lazyContentLayout = UNSET;
+	private ContentFactory lazyContentFactory;
+	private OnLazyContentListener lazyContentListener;
+	private LazyContentState lazyContentState = LazyContentState.NONE;
+	private boolean isLazyContentIdleInflate;
+	private boolean isLazyContentIdleQueued;
+	private boolean isLazyContentPlaceholder;
+	private int lazyContentToken;
+	private long lazyContentRequestTime;
+	@VisibleForTesting
+	Executor lazyContentExecutor = AsyncTask.THREAD_POOL_EXECUTOR;
+	private final MessageQueue.IdleHandler lazyContentIdle = new MessageQueue.IdleHandler() {
+		@Override
+		public boolean queueIdle() {
+			isLazyContentIdleQueued = false;
+			requestLazyContent(false);
+			return false;
+		}
+	};
+
+	/**
+	 * {@link LayerPolicy} state from the first move or settle frame until the gesture ends.
+	 * Snapshot bitmap is allocated when the main thread is idle and kept for the next gesture while its size fits
+	 */
+	private boolean isMotionLayerActive;
+	private int layerTypeBeforeMotion;
+	private boolean isSnapshotActive;
+	private Bitmap contentSnapshot;
+	private Canvas snapshotCanvas;
+	private boolean isSnapshotAllocationQueued;
+	private final MessageQueue.IdleHandler snapshotAllocation = new MessageQueue.IdleHandler() {
+		@Override
+		public boolean queueIdle() {
+			isSnapshotAllocationQueued = false;
+			allocateSnapshot();
+			return false;
+		}
+	};
+
+	/**
+	 * values of container min and max values, max is NaN until calculated
+	 */
+	private float minHeight;
+	private float maxHeight = Float.NaN;
+
+	/**
+	 * max height follows the height available in the parent: checked when the parent is laid out
+	 * at a new size, and on the next layout pass after window insets changed.
+	 * A wrap_content parent resizes with the panel itself, so only changes of the parent height
+	 * left beside the panel count
+	 */
+	private View trackedParent;
+	private int parentHeightBeside = Integer.MIN_VALUE;
+	private boolean isMaxHeightDirty;
+	private boolean isResettlePosted;
+	private final Runnable resettle = new Runnable() {
+		@Override
+		public void run() {
+			isResettlePosted = false;
+			settleToResizedStop();
+		}
+	};
+	private final View.OnLayoutChangeListener parentLayoutListener = new View.OnLayoutChangeListener() {
+		@Override
+		public void onLayoutChange(View v, int left, int top, int right, int bottom, int oldLeft, int oldTop, int oldRight, int oldBottom) {
+			int heightBeside = bottom - top - SwipeLayout.this.getHeight();
+			boolean isBesideChanged = heightBeside != parentHeightBeside;
+			parentHeightBeside = heightBeside;
+			if (bottom - top != oldBottom - oldTop && isBesideChanged) {
+				onAvailableHeightChanged();
+			}
+		}
+	};
 
 	/**
 	 * views of action container and content container
@@ -80,18 +270,180 @@ public class SwipeLayout extends RelativeLayout implements View.OnTouchListener
 	private View actionContainer;
 	private RelativeLayout contentContainer;
 
+	/**
+	 * state of {@link DragMode#TRANSLATION} drag: visible height of the panel while the real height
+	 * is kept where the drag started ( or at {@link #maxHeight} once the drag went above it ) until the panel settles
+	 */
+	private boolean isTranslationDragActive;
+	private float dragHeight;
+	private final Rect dragClipBounds = new Rect();
+
+	/**
+	 * {@link ContentReveal#CLIP}: revealed part of the content container, in its own coordinates
+	 */
+	private final Rect contentClipBounds = new Rect();
+
+	/**
+	 * state of {@link SettleMode#RENDER_THREAD} settle: final height committed when the content container animation
+	 * ends ( not when it's cancelled )
+	 */
+	private boolean isRenderThreadSettleActive;
+	private float settleTargetHeight;
+	private final Runnable settleCommit = new Runnable() {
+		@Override
+		public void run() {
+			if (isRenderThreadSettleActive) {
+				finishRenderThreadSettle(settleTargetHeight);
+			}
+		}
+	};
+
+	/**
+	 * running {@link SettleMode#ANIMATOR} animation, replaced ( not stacked ) by the next settle.
+	 * Height is interpolated from the animated fraction, {@link ValueAnimator#getAnimatedValue()} boxes every frame
+	 */
+	private ValueAnimator settleAnimator;
+	private float settleFromHeight;
+	private float settleToHeight;
+	private final ValueAnimator.AnimatorUpdateListener settleUpdateListener = new ValueAnimator.AnimatorUpdateListener() {
+		@Override
+		public void onAnimationUpdate(ValueAnimator updatedAnimation) {
+			applySettleHeight(settleFromHeight + (settleToHeight - settleFromHeight) * updatedAnimation.getAnimatedFraction());
+		}
+	};
+	private final AnimatorListener settleListener = new AnimatorListener() {
+		@Override
+		public void onAnimationStart(Animator animation) {
+
+		}
+
+		@Override
+		public void onAnimationEnd(Animator animation) {
+			// replaced or cancelled by a new gesture
+			if (animation != settleAnimator)
+				return;
+
+			settleAnimator = null;
+			onSettleEnd();
+		}
+
+		@Override
+		public void onAnimationCancel(Animator animation) {
+
+		}
+
+		@Override
+		public void onAnimationRepeat(Animator animation) {
+
+		}
+	};
+
+	/**
+	 * {@link SettleMode#SPRING} settle: spring stepped from choreographer frames, finger velocity in px/s
+	 */
+	private final PanelSpring spring = new PanelSpring();
+	private VelocityTracker velocityTracker;
+	private long springFrameTime;
+	private final Choreographer.FrameCallback springFrame = new Choreographer.FrameCallback() {
+		@Override
+		public void doFrame(long frameTimeNanos) {
+			float seconds = springFrameTime == 0 ? 0.016f : (frameTimeNanos - springFrameTime) / 1000000000f;
+			springFrameTime = frameTimeNanos;
+
+			boolean isMoving = spring.step(seconds);
+			applySettleHeight(spring.getPosition());
+			if (isMoving) {
+				Choreographer.getInstance().postFrameCallback(this);
+			}
+			else {
+				springFrameTime = 0;
+				onSettleEnd();
+			}
+		}
+	};
+
+	/**
+	 * settles driven by the frame callback of the group this layout is in, null if not in a group
+	 */
+	private SwipeLayoutGroup group;
+	private boolean isGroupSettleActive;
+	private long groupSettleStartTime;
+
 	/**
 	 * positions where to swipe
 	 */
 	private ArrayList<StopPosition> positions = new ArrayList<>();
 	private StopPosition currentClosestPosition;
 
+	/**
+	 * positions list set by {@link #setSharedPositions(ArrayList)}, copied before the first change
+	 */
+	private boolean isPositionsShared;
+
+	/**
+	 * list mode: state is kept in {@link PanelStateStore} under bound id, action containers come from the pool
+	 */
+	private static final long NO_STATE = Long.MIN_VALUE;
+	private PanelStateStore boundStore;
+	private long boundId;
+	private int unboundHeight;
+	private ActionContainerPool actionContainerPool;
+	private int actionContainerType;
+
+	/**
+	 * current stop, BUTTON mode direction and sorted resolved stops; stops are rebuilt lazily
+	 * after positions, min / max height or layout change
+	 */
+	private final PanelStateMachine stateMachine = new PanelStateMachine();
+	private boolean isStopIndexDirty = true;
+
+	/**
+	 * stops keep one resolved value per generation; a new generation is started whenever layout,
+	 * min or max height change. Unique over all instances, so stops shared between layouts stay correct
+	 */
+	private static int sGenerationCounter;
+	private int stopGeneration = ++sGenerationCounter;
+	private int stopCacheHits;
+	private int stopCacheMisses;
+
+	/**
+	 * TO_END_OF / TO_TOP_OF target views ( looked up once per positions change ) and their bounds
+	 * recorded on layout passes, parallel to positions. Stops are re-resolved only when these move
+	 */
+	private View[] stopTargets = new View[0];
+	private int[] stopTargetTops = new int[0];
+	private int[] stopTargetHeights = new int[0];
+	private boolean isStopTargetsDirty = true;
+
 	/**
 	 * event interceptors helpers
 	 */
 	boolean canBeSwipeProcessed = false;
 	boolean canBeIntercepted = false;
 
+	/**
+	 * nested scrolling: this layout is the parent of scrolling content and passes what it doesn't consume
+	 * to its own nested scrolling parents. Mode is taken from the current stop when the nested scroll starts
+	 */
+	private final NestedScrollingParentHelper nestedParentHelper = new NestedScrollingParentHelper(this);
+	/**
+	 * created lazily: View constructor calls setNestedScrollingEnabled for android:nestedScrollingEnabled
+	 * before fields are initialised ( so no initializer here, it would overwrite that one )
+	 */
+	private NestedScrollingChildHelper nestedChildHelper;
+	private NestedScrollMode activeNestedScrollMode = NestedScrollMode.NONE;
+	private boolean isNestedDragged;
+
+	/**
+	 * gesture diagnostics, nothing is built or called while null
+	 */
+	private GestureTraceListener gestureTraceListener;
+
+	/**
+	 * per-gesture stats, null ( and not tracked ) until a metrics listener is set
+	 */
+	private SwipeMetrics metrics;
+
 	public SwipeLayout(Context context) {
 		super(context);
 		init(null);
@@ -123,6 +475,15 @@ public class SwipeLayout extends RelativeLayout implements View.OnTouchListener
 
 			try {
 				mMode = a.getInteger(R.styleable.SwipeLayout_mode, 0);
+				mDragMode = DragMode.values()[a.getInteger(R.styleable.SwipeLayout_swDragMode, DragMode.LAYOUT.ordinal())];
+				mSettleMode = SettleMode.values()[a.getInteger(R.styleable.SwipeLayout_swSettleMode, SettleMode.ANIMATOR.ordinal())];
+				spring.setStiffness(a.getFloat(R.styleable.SwipeLayout_swSpringStiffness, PanelSpring.DEFAULT_STIFFNESS));
+				spring.setDampingRatio(a.getFloat(R.styleable.SwipeLayout_swSpringDampingRatio, PanelSpring.DEFAULT_DAMPING_RATIO));
+				isMoveCoalescing = a.getBoolean(R.styleable.SwipeLayout_swCoalesceMoves, false);
+				mLayerPolicy = LayerPolicy.values()[a.getInteger(R.styleable.SwipeLayout_swLayerPolicy, LayerPolicy.NONE.ordinal())];
+				mContentReveal = ContentReveal.values()[a.getInteger(R.styleable.SwipeLayout_swContentReveal, ContentReveal.VISIBILITY.ordinal())];
+				isPredictiveMeasure = a.getBoolean(R.styleable.SwipeLayout_swPredictiveMeasure, false);
+				mNestedScrollMode = NestedScrollMode.values()[a.getInteger(R.styleable.SwipeLayout_swNestedScrollMode, NestedScrollMode.NONE.ordinal())];
 				if (isSwipe()) {
 					mActionButtonSrc = a.getResourceId(R.styleable.SwipeLayout_swActionButtonSrc, DEFAULT_SRC);
 					mActionButtonHeight = a.getDimensionPixelSize(R.styleable.SwipeLayout_swActionButtonHeight, getPixelSize(DEFAULT_SIZE_DP));
@@ -151,32 +512,21 @@ public class SwipeLayout extends RelativeLayout implements View.OnTouchListener
 		contentContainer.setId(View.generateViewId());
 		this.addView(contentContainer);
 
-		this.post(new Runnable() {
-			@Override
-			public void run() {
-
-				calculateMaxHeight();
-
-				int childCount = SwipeLayout.this.getChildCount();
-				int stepsDone = 0;
-				int index = 0;
-				do {
-					View child = SwipeLayout.this.getChildAt(index);
-					if (child.getId() != actionContainer.getId() && child.getId() != contentContainer.getId()) {
-						SwipeLayout.this.removeView(child);
-						contentContainer.addView(child);
-					}
-					else {
-						index++;
-					}
-					stepsDone++;
-				} while (stepsDone < childCount);
-			}
-		});
-
+		actionContainerPool = ActionContainerPool.from(this.getContext());
 		addActionContainer();
 		this.setOnTouchListener(this);
 		this.requestDisallowInterceptTouchEvent(true);
+		// enabled by default, unless android:nestedScrollingEnabled already set it from the View constructor
+		if (nestedChildHelper == null) {
+			this.setNestedScrollingEnabled(true);
+		}
+		ViewCompat.setOnApplyWindowInsetsListener(this, new OnApplyWindowInsetsListener() {
+			@Override
+			public WindowInsetsCompat onApplyWindowInsets(View v, WindowInsetsCompat insets) {
+				isMaxHeightDirty = true;
+				return ViewCompat.onApplyWindowInsets(v, insets);
+			}
+		});
 		if (this.getId() == NO_ID) {
 			this.setId(View.generateViewId());
 		}
@@ -184,40 +534,96 @@ public class SwipeLayout extends RelativeLayout implements View.OnTouchListener
 
 	@Override
 	protected Parcelable onSaveInstanceState() {
-		Bundle bundle = new Bundle(new Bundle());
-		bundle.putParcelable(STATE_BUNDLE_KEY, super.onSaveInstanceState());
-		bundle.putSerializable(STATE_POSITIONS_KEY, positions);
-		bundle.putSerializable(STATE_CLOSEST_KEY, currentClosestPosition);
-		return bundle;
+		SavedState state = new SavedState(super.onSaveInstanceState());
+		state.stops = new int[positions.size() * 2];
+		for (int i = 0; i < positions.size(); i++) {
+			StopPosition position = positions.get(i);
+			state.stops[i * 2] = position.getType().ordinal();
+			state.stops[i * 2 + 1] = position.getConfigValue();
+		}
+		state.stop = stateMachine.getCurrentStop();
+		state.height = getStateHeight();
+		state.direction = getDirection().ordinal();
+		return state;
 	}
 
+	/**
+	 * stops set again before the restore ( e.g. in onCreate ) are kept, saved ones are only rebuilt if they differ
+	 */
 	@Override
 	protected void onRestoreInstanceState(Parcelable state) {
-		if (state instanceof Bundle) {
-			Bundle bundle = (Bundle) state;
-			this.positions = (ArrayList<StopPosition>) bundle.getSerializable(STATE_POSITIONS_KEY);
-			super.onRestoreInstanceState(bundle.getParcelable(STATE_BUNDLE_KEY));
+		if (!(state instanceof SavedState)) {
+			super.onRestoreInstanceState(state);
 			return;
 		}
 
-		super.onRestoreInstanceState(state);
+		SavedState savedState = (SavedState) state;
+		super.onRestoreInstanceState(savedState.getSuperState());
+
+		if (!hasPositions(savedState.stops)) {
+			int count = savedState.stops.length / 2;
+			positions = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				positions.add(StopPosition.fromConfig(SwipeToPosition.values()[savedState.stops[i * 2]], savedState.stops[i * 2 + 1]));
+			}
+			isPositionsShared = false;
+			onPositionsChanged();
+		}
+
+		int stop = savedState.stop >= 0 && savedState.stop < positions.size() ? savedState.stop : PanelStateMachine.NONE;
+		applyState(savedState.height, stop, Direction.values()[savedState.direction]);
 	}
 
 	@Override
 	public boolean onTouch(View v, MotionEvent event) {
+		boolean isTraced = sTraceSections;
+		if (isTraced) {
+			Trace.beginSection("SwipeLayout#onTouch");
+		}
+		try {
+			boolean isHandled = handleTouch(v, event);
+			if (gestureTraceListener != null) {
+				gestureTraceListener.onTouchTraced(this, v.getId(), event.getAction(), isHandled);
+			}
+			return isHandled;
+		} finally {
+			if (isTraced) {
+				Trace.endSection();
+			}
+		}
+	}
+
+	private boolean handleTouch(View v, MotionEvent event) {
 		if (isFixed())
 			return false;
 
 		int action = event.getAction();
-		Log.d(SwipeLayout.class.getName(), " Action is  => " + event.getAction() + " view is " + v.getId());
 
 		switch (action) {
 			// finger down event
 			case (MotionEvent.ACTION_DOWN):
+				if (isRenderThreadSettleActive) {
+					finishRenderThreadSettle(this.getLayoutParams().height + contentContainer.getTranslationY());
+				}
 
 				if (v.getId() == actionContainer.getId() && isSwipe()) {
 					canBeSwipeProcessed = true;
 					canBeIntercepted = true;
+
+					// panel is grabbed, drag continues from where the settle is now; metrics of a new gesture start with its first move
+					stopSettle();
+					if (metrics != null) {
+						metrics.onGestureEnd();
+					}
+					if (mSettleMode == SettleMode.SPRING) {
+						if (velocityTracker == null) {
+							velocityTracker = VelocityTracker.obtain();
+						}
+						else {
+							velocityTracker.clear();
+						}
+						addVelocityMovement(event);
+					}
 				}
 
 				downYVal = event.getY();
@@ -227,53 +633,101 @@ public class SwipeLayout extends RelativeLayout implements View.OnTouchListener
 				return true;
 			// finger up event
 			case (MotionEvent.ACTION_UP):
+				applyPendingMove();
 				if (positions.size() > 0 && ((isClick && isButton()) || (isSwipe() && canBeSwipeProcessed))) {
 					float value = (v.getId() == this.getId() ? 0 : v.getTop()) + event.getY();
-					StopPosition closestPosition = calculateClosest(value);
-					closestPosition = calculateNextDirection(closestPosition);
-					currentClosestPosition = closestPosition;
-					animate(this.getHeight(), closestPosition.getHeight(value));
+					float velocity = 0;
+					if (isSwipe() && mSettleMode == SettleMode.SPRING && velocityTracker != null) {
+						addVelocityMovement(event);
+						velocityTracker.computeCurrentVelocity(1000);
+						velocity = velocityTracker.getYVelocity();
+						value = PanelSpring.projectFling(value, velocity);
+					}
+
+					int closestIndex;
+					if (isButton()) {
+						boolean wasUp = getStateMachine().isUp();
+						closestIndex = stateMachine.click(value);
+						if (stateMachine.isUp() != wasUp) {
+							setButtonText();
+						}
+					}
+					else {
+						closestIndex = getStateMachine().release(value);
+					}
+					currentClosestPosition = positions.get(closestIndex);
+					if (metrics != null) {
+						metrics.onSettleStart(currentClosestPosition);
+					}
+					animate(isTranslationDragActive ? dragHeight : this.getHeight(), getStateMachine().getStopHeight(closestIndex), velocity);
+				}
+				else {
+					if (isTranslationDragActive) {
+						commitDragHeight(dragHeight);
+					}
+					endGesture();
 				}
 
 				canBeSwipeProcessed = false;
 				canBeIntercepted = false;
-				prevYVal = null;
+				prevYVal = Float.NaN;
 
 				return true;
 
-			// when swiping is going on
-			case (MotionEvent.ACTION_MOVE):
-				if (
-						(downYVal != null && Math.abs(downYVal - event.getY()) > 50) ||
-								(downXVal != null && Math.abs(downXVal - event.getX()) > 50)
-						) {
-					isClick = false;
+			// parent took the gesture over ( e.g. list scroll ), panel settles where the finger left it
+			case (MotionEvent.ACTION_CANCEL):
+				applyPendingMove();
+				int cancelIndex = isSwipe() && canBeSwipeProcessed ? getStateMachine().release(getCurrentHeight()) : PanelStateMachine.NONE;
+				if (cancelIndex != PanelStateMachine.NONE) {
+					currentClosestPosition = positions.get(cancelIndex);
+					if (metrics != null) {
+						metrics.onSettleStart(currentClosestPosition);
+					}
+					animate(getCurrentHeight(), stateMachine.getStopHeight(cancelIndex));
+				}
+				else {
+					if (isTranslationDragActive) {
+						commitDragHeight(dragHeight);
+					}
+					endGesture();
 				}
 
-				if (v.getId() == this.getId() && canBeSwipeProcessed && isSwipe()) {
-					ViewGroup.LayoutParams params = this.getLayoutParams();
+				isClick = false;
+				canBeSwipeProcessed = false;
+				canBeIntercepted = false;
+				prevYVal = Float.NaN;
 
-					if (params.height == ViewGroup.LayoutParams.MATCH_PARENT || params.height == ViewGroup.LayoutParams.WRAP_CONTENT)
-						params.height = this.getMeasuredHeight();
+				return true;
 
-					prevYVal = prevYVal == null ? event.getY() : prevYVal;
+			// when swiping is going on
+			case (MotionEvent.ACTION_MOVE):
+				// batched samples count too, a quick move out and back is not a click
+				for (int i = 0; i < event.getHistorySize() && isClick; i++) {
+					if (isOutOfClick(event.getHistoricalX(i), event.getHistoricalY(i))) {
+						isClick = false;
+					}
+				}
+				if (isOutOfClick(event.getX(), event.getY())) {
+					isClick = false;
+				}
 
-					params.height += event.getY() - prevYVal;
+				if (canBeSwipeProcessed && velocityTracker != null && mSettleMode == SettleMode.SPRING) {
+					addVelocityMovement(event);
+				}
 
-					if (params.height < minHeight) {
-						params.height = minHeight.intValue();
-						contentContainer.setVisibility(GONE);
-					}
-					else if (params.height > maxHeight) {
-						params.height = maxHeight.intValue();
+				if (v.getId() == this.getId() && canBeSwipeProcessed && isSwipe()) {
+					prevYVal = Float.isNaN(prevYVal) ? event.getY() : prevYVal;
+					if (isMoveCoalescing) {
+						pendingMoveY = event.getY();
+						if (!isMoveFramePosted) {
+							isMoveFramePosted = true;
+							Choreographer.getInstance().postFrameCallback(moveFrame);
+						}
 					}
 					else {
-						if (contentContainer.getVisibility() == GONE)
-							contentContainer.setVisibility(VISIBLE);
+						dragBy(event.getY() - prevYVal);
+						prevYVal = event.getY();
 					}
-
-					prevYVal = event.getY();
-					this.setLayoutParams(params);
 				}
 				return true;
 		}
@@ -285,242 +739,1885 @@ public class SwipeLayout extends RelativeLayout implements View.OnTouchListener
 	 */
 	@Override
 	public boolean onInterceptTouchEvent(MotionEvent ev) {
-		boolean res = (ev.getAction() == MotionEvent.ACTION_MOVE) && canBeIntercepted;
-		Log.d(SwipeLayout.class.getName(), "IS intercepted " + res + " canBeIntercepted " + canBeIntercepted + " MotionEvent => " + ev.getAction() );
-		return !isButton() && res;
+		boolean res = !isButton() && (ev.getAction() == MotionEvent.ACTION_MOVE) && canBeIntercepted;
+		if (gestureTraceListener != null) {
+			gestureTraceListener.onInterceptTraced(this, ev.getAction(), canBeIntercepted, res);
+		}
+		return res;
 	}
 
-	/*-------------------------*/
-	/*     PUBLIC METHODS      */
-	/*-------------------------*/
-
 	/**
-	 * Data method, for adding "stop" position
-	 * @param position {@link StopPosition} wher layout will
+	 * Single measure pass: action container at its own height, content container at the rest.
+	 * Content that doesn't depend on the available height is measured at its natural size, so that
+	 * measure spec doesn't change while the panel height does and the content is only laid out again
 	 */
-	public void addPosition(StopPosition position) {
-		positions.add(position);
-	}
+	@Override
+	protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+		int horizontalPadding = getPaddingLeft() + getPaddingRight();
+		int verticalPadding = getPaddingTop() + getPaddingBottom();
+		int maxWidth = 0;
+
+		int actionHeight = 0;
+		if (actionContainer != null && actionContainer.getVisibility() != GONE) {
+			measureChild(actionContainer, widthMeasureSpec, heightMeasureSpec);
+			actionHeight = actionContainer.getMeasuredHeight();
+			maxWidth = actionContainer.getMeasuredWidth();
+		}
 
-	public void addPositions(ArrayList<StopPosition> position) {
-		positions.addAll(position);
-	}
+		int contentHeight = 0;
+		if (contentContainer.getVisibility() != GONE) {
+			measureContent(widthMeasureSpec, heightMeasureSpec, actionHeight);
+			contentHeight = contentContainer.getMeasuredHeight();
+			maxWidth = Math.max(maxWidth, contentContainer.getMeasuredWidth());
+		}
 
-	public void clearPositions() {
-		positions.clear();
-	}
+		int width = resolveSize(Math.max(maxWidth + horizontalPadding, getSuggestedMinimumWidth()), widthMeasureSpec);
+		int height = resolveSize(Math.max(contentHeight + actionHeight + verticalPadding, getSuggestedMinimumHeight()), heightMeasureSpec);
+		setMeasuredDimension(width, height);
 
-	public LayoutMode getMode() {
-		return LayoutMode.values()[mMode];
+		// wrap_content width: match_parent children take the resolved width, as in FrameLayout
+		if (MeasureSpec.getMode(widthMeasureSpec) != MeasureSpec.EXACTLY) {
+			int exactWidthSpec = MeasureSpec.makeMeasureSpec(width - horizontalPadding, MeasureSpec.EXACTLY);
+			if (actionContainer != null && actionContainer.getVisibility() != GONE
+					&& actionContainer.getLayoutParams().width == LayoutParams.MATCH_PARENT && actionContainer.getMeasuredWidth() != width - horizontalPadding) {
+				actionContainer.measure(exactWidthSpec, MeasureSpec.makeMeasureSpec(actionHeight, MeasureSpec.EXACTLY));
+			}
+			if (contentContainer.getVisibility() != GONE
+					&& contentContainer.getLayoutParams().width == LayoutParams.MATCH_PARENT && contentContainer.getMeasuredWidth() != width - horizontalPadding) {
+				contentContainer.measure(exactWidthSpec, MeasureSpec.makeMeasureSpec(contentHeight, MeasureSpec.EXACTLY));
+			}
+		}
 	}
 
-	public void setMode(LayoutMode mMode) {
-		setMode(mMode, null);
+	/**
+	 * content container gets the height left by the action container, or its natural height if it doesn't depend on it.
+	 * {@link ContentReveal#CLIP} gives it the height left at max height, so it doesn't change while the panel moves.
+	 * Natural height is measured AT_MOST the height left at max height: one pass, bounded as the former RelativeLayout did,
+	 * and the spec doesn't follow the panel height. Until max height is known it is measured UNSPECIFIED
+	 */
+	private void measureContent(int widthMeasureSpec, int heightMeasureSpec, int actionHeight) {
+		int widthSpec = getChildMeasureSpec(widthMeasureSpec, getPaddingLeft() + getPaddingRight(), contentContainer.getLayoutParams().width);
+		int heightMode = MeasureSpec.getMode(heightMeasureSpec);
+		int padding = getPaddingTop() + getPaddingBottom() + actionHeight;
+		int available = Math.max(0, MeasureSpec.getSize(heightMeasureSpec) - padding);
+		int maxAvailable = Float.isNaN(maxHeight) ? available : Math.max(0, (int) maxHeight - padding);
+
+		int contentHeightSpec;
+		if (heightMode == MeasureSpec.UNSPECIFIED) {
+			contentHeightSpec = MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED);
+		}
+		else if (!isContentHeightDependent()) {
+			contentHeightSpec = Float.isNaN(maxHeight) ? MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED) : MeasureSpec.makeMeasureSpec(maxAvailable, MeasureSpec.AT_MOST);
+		}
+		else if (mContentReveal == ContentReveal.CLIP && !Float.isNaN(maxHeight)) {
+			contentHeightSpec = MeasureSpec.makeMeasureSpec(maxAvailable, MeasureSpec.EXACTLY);
+		}
+		else {
+			contentHeightSpec = MeasureSpec.makeMeasureSpec(available, heightMode);
+		}
+		contentContainer.measure(widthSpec, contentHeightSpec);
 	}
 
-	public void setMode(LayoutMode mMode, Direction direction) {
-		this.mMode = mMode.ordinal();
-
-		if (direction != null)
-			this.mDirection = direction;
+	/**
+	 * action container at the bottom, content container fills the rest above it. Content measured at its
+	 * natural size is laid out at the visible height, anything below is clipped by the content container.
+	 * {@link ContentReveal#CLIP} keeps the content at its measured size and only moves its clip bounds
+	 */
+	@Override
+	protected void onLayout(boolean changed, int l, int t, int r, int b) {
+		int left = getPaddingLeft();
+		int top = getPaddingTop();
+		int bottom = b - t - getPaddingBottom();
+
+		int contentBottom = bottom;
+		if (actionContainer != null && actionContainer.getVisibility() != GONE) {
+			contentBottom = bottom - actionContainer.getMeasuredHeight();
+			actionContainer.layout(left, contentBottom, left + actionContainer.getMeasuredWidth(), bottom);
+		}
+		if (contentContainer.getVisibility() != GONE) {
+			if (mContentReveal == ContentReveal.CLIP) {
+				contentContainer.layout(left, top, left + contentContainer.getMeasuredWidth(), top + contentContainer.getMeasuredHeight());
+				revealContent(Math.max(0, contentBottom - top));
+			}
+			else {
+				contentContainer.layout(left, top, left + contentContainer.getMeasuredWidth(), Math.max(top, contentBottom));
+			}
+		}
 
-		removeActionContainer();
-		addActionContainer();
+		if (Float.isNaN(maxHeight)) {
+			calculateMaxHeight();
+			// stops resolve from now on, the first expand after inflation is predicted too
+			schedulePredictiveMeasure();
+		}
+		else if (isMaxHeightDirty) {
+			onAvailableHeightChanged();
+		}
+		isMaxHeightDirty = false;
+		if (metrics != null) {
+			metrics.onLayoutPass();
+		}
+		if (captureStopTargets()) {
+			invalidateStops();
+		}
+		scheduleSnapshotAllocation();
 	}
 
-	public View getActionContainer() {
-		return actionContainer;
+	/**
+	 * children are laid out by the content container, so they get its layout params
+	 */
+	@Override
+	public LayoutParams generateLayoutParams(AttributeSet attrs) {
+		return new RelativeLayout.LayoutParams(getContext(), attrs);
 	}
 
-	public RelativeLayout getContentContainer() {
-		return contentContainer;
+	@Override
+	protected LayoutParams generateDefaultLayoutParams() {
+		return new RelativeLayout.LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT);
 	}
 
-	public Direction getDirection() {
-		return mDirection;
+	/**
+	 * {@link LayerPolicy#SNAPSHOT}: content is drawn from the bitmap, clipped to its current bounds
+	 */
+	@Override
+	protected boolean drawChild(Canvas canvas, View child, long drawingTime) {
+		if (child != contentContainer || !isSnapshotActive || child.getVisibility() != VISIBLE)
+			return super.drawChild(canvas, child, drawingTime);
+
+		int bottom = mContentReveal == ContentReveal.CLIP ? child.getTop() + contentClipBounds.bottom : child.getBottom();
+		int saveCount = canvas.save();
+		canvas.clipRect(child.getLeft(), child.getTop(), child.getRight(), bottom);
+		canvas.drawBitmap(contentSnapshot, child.getLeft(), child.getTop(), null);
+		canvas.restoreToCount(saveCount);
+		return false;
 	}
 
-	public void setDirection(Direction mDirection) {
-		this.mDirection = mDirection;
-		removeActionContainer();
-		addActionContainer();
+	@Override
+	public boolean shouldDelayChildPressedState() {
+		return false;
 	}
 
-	public void swipeTo(final StopPosition position) {
+	/**
+	 * children inflated from xml or added later go straight to the content container,
+	 * so the first layout pass already has them in place
+	 */
+	@Override
+	public void addView(View child, int index, ViewGroup.LayoutParams params) {
+		if (child == contentContainer || child == actionContainer) {
+			super.addView(child, index, params);
+			return;
+		}
+
+		contentContainer.addView(child, index <= contentContainer.getChildCount() ? index : -1, params);
+	}
+
+	@Override
+	protected void onAttachedToWindow() {
+		super.onAttachedToWindow();
+		scheduleLazyContentIdle();
+		schedulePredictiveMeasure();
+		if (this.getParent() instanceof View) {
+			trackedParent = (View) this.getParent();
+			parentHeightBeside = trackedParent.getHeight() - this.getHeight();
+			trackedParent.addOnLayoutChangeListener(parentLayoutListener);
+		}
+	}
+
+	@Override
+	protected void onDetachedFromWindow() {
+		if (trackedParent != null) {
+			trackedParent.removeOnLayoutChangeListener(parentLayoutListener);
+			trackedParent = null;
+		}
+		if (isResettlePosted) {
+			this.removeCallbacks(resettle);
+			isResettlePosted = false;
+		}
+		if (isMoveFramePosted) {
+			Choreographer.getInstance().removeFrameCallback(moveFrame);
+			isMoveFramePosted = false;
+		}
+		pendingMoveY = Float.NaN;
+		if (isPredictionQueued) {
+			Looper.myQueue().removeIdleHandler(predictiveMeasure);
+			isPredictionQueued = false;
+		}
+		if (isLazyContentIdleQueued) {
+			Looper.myQueue().removeIdleHandler(lazyContentIdle);
+			isLazyContentIdleQueued = false;
+		}
+		if (isSnapshotAllocationQueued) {
+			Looper.myQueue().removeIdleHandler(snapshotAllocation);
+			isSnapshotAllocationQueued = false;
+		}
+		stopSettle();
+		endGesture();
+		if (contentSnapshot != null) {
+			contentSnapshot.recycle();
+			contentSnapshot = null;
+			snapshotCanvas = null;
+		}
+		if (velocityTracker != null) {
+			velocityTracker.recycle();
+			velocityTracker = null;
+		}
+		super.onDetachedFromWindow();
+	}
+
+	/*-------------------------*/
+	/*     NESTED SCROLLING    */
+	/*-------------------------*/
+
+	@Override
+	public boolean onStartNestedScroll(View child, View target, int nestedScrollAxes) {
+		return isSwipe() && (nestedScrollAxes & ViewCompat.SCROLL_AXIS_VERTICAL) != 0 && getCurrentNestedScrollMode() != NestedScrollMode.NONE;
+	}
+
+	@Override
+	public void onNestedScrollAccepted(View child, View target, int nestedScrollAxes) {
+		nestedParentHelper.onNestedScrollAccepted(child, target, nestedScrollAxes);
+		startNestedScroll(ViewCompat.SCROLL_AXIS_VERTICAL);
+
+		if (isRenderThreadSettleActive) {
+			finishRenderThreadSettle(this.getLayoutParams().height + contentContainer.getTranslationY());
+		}
+		stopSettle();
+		if (metrics != null) {
+			metrics.onGestureEnd();
+		}
+		activeNestedScrollMode = getCurrentNestedScrollMode();
+		isNestedDragged = false;
+	}
+
+	/**
+	 * outer parents first, then PANEL_FIRST collapses the panel before the content scrolls up
+	 */
+	@Override
+	public void onNestedPreScroll(View target, int dx, int dy, int[] consumed) {
+		if (dispatchNestedPreScroll(dx, dy, consumed, null)) {
+			dy -= consumed[1];
+		}
+
+		if (activeNestedScrollMode == NestedScrollMode.PANEL_FIRST && dy > 0) {
+			consumed[1] += dragNested(dy);
+		}
+	}
+
+	/**
+	 * content reached its end: the panel takes the rest, what's left goes to outer parents
+	 */
+	@Override
+	public void onNestedScroll(View target, int dxConsumed, int dyConsumed, int dxUnconsumed, int dyUnconsumed) {
+		int panelConsumed = 0;
+		if (dyUnconsumed < 0 || (dyUnconsumed > 0 && activeNestedScrollMode == NestedScrollMode.CONTENT_FIRST)) {
+			panelConsumed = dragNested(dyUnconsumed);
+		}
+		dispatchNestedScroll(dxConsumed, dyConsumed + panelConsumed, dxUnconsumed, dyUnconsumed - panelConsumed, null);
+	}
+
+	/**
+	 * a panel moved by this gesture takes the fling and settles with its velocity
+	 */
+	@Override
+	public boolean onNestedPreFling(View target, float velocityX, float velocityY) {
+		if (isNestedDragged) {
+			settleNested(-velocityY);
+			return true;
+		}
+		return dispatchNestedPreFling(velocityX, velocityY);
+	}
+
+	/**
+	 * fling the content can't take ( it is at its end ) carries over to the panel
+	 */
+	@Override
+	public boolean onNestedFling(View target, float velocityX, float velocityY, boolean consumed) {
+		if (!consumed && (velocityY < 0 || activeNestedScrollMode == NestedScrollMode.CONTENT_FIRST)) {
+			settleNested(-velocityY);
+			return true;
+		}
+		return dispatchNestedFling(velocityX, velocityY, consumed);
+	}
+
+	@Override
+	public void onStopNestedScroll(View target) {
+		nestedParentHelper.onStopNestedScroll(target);
+		if (isNestedDragged) {
+			settleNested(0);
+		}
+		else if (!isSettling()) {
+			endGesture();
+		}
+		activeNestedScrollMode = NestedScrollMode.NONE;
+		stopNestedScroll();
+	}
+
+	@Override
+	public int getNestedScrollAxes() {
+		return nestedParentHelper.getNestedScrollAxes();
+	}
+
+	@Override
+	public void setNestedScrollingEnabled(boolean enabled) {
+		getNestedChildHelper().setNestedScrollingEnabled(enabled);
+	}
+
+	@Override
+	public boolean isNestedScrollingEnabled() {
+		return getNestedChildHelper().isNestedScrollingEnabled();
+	}
+
+	@Override
+	public boolean startNestedScroll(int axes) {
+		return getNestedChildHelper().startNestedScroll(axes);
+	}
+
+	@Override
+	public void stopNestedScroll() {
+		getNestedChildHelper().stopNestedScroll();
+	}
+
+	@Override
+	public boolean hasNestedScrollingParent() {
+		return getNestedChildHelper().hasNestedScrollingParent();
+	}
+
+	@Override
+	public boolean dispatchNestedScroll(int dxConsumed, int dyConsumed, int dxUnconsumed, int dyUnconsumed, int[] offsetInWindow) {
+		return getNestedChildHelper().dispatchNestedScroll(dxConsumed, dyConsumed, dxUnconsumed, dyUnconsumed, offsetInWindow);
+	}
+
+	@Override
+	public boolean dispatchNestedPreScroll(int dx, int dy, int[] consumed, int[] offsetInWindow) {
+		return getNestedChildHelper().dispatchNestedPreScroll(dx, dy, consumed, offsetInWindow);
+	}
+
+	@Override
+	public boolean dispatchNestedFling(float velocityX, float velocityY, boolean consumed) {
+		return getNestedChildHelper().dispatchNestedFling(velocityX, velocityY, consumed);
+	}
+
+	@Override
+	public boolean dispatchNestedPreFling(float velocityX, float velocityY) {
+		return getNestedChildHelper().dispatchNestedPreFling(velocityX, velocityY);
+	}
+
+	private NestedScrollingChildHelper getNestedChildHelper() {
+		if (nestedChildHelper == null) {
+			nestedChildHelper = new NestedScrollingChildHelper(this);
+		}
+		return nestedChildHelper;
+	}
+
+	/*-------------------------*/
+	/*     PUBLIC METHODS      */
+	/*-------------------------*/
+
+	/**
+	 * Data method, for adding "stop" position
+	 * @param position {@link StopPosition} wher layout will
+	 */
+	public void addPosition(StopPosition position) {
+		ensureOwnPositions();
+		positions.add(position);
+		onPositionsChanged();
+	}
+
+	public void addPositions(ArrayList<StopPosition> position) {
+		ensureOwnPositions();
+		positions.addAll(position);
+		onPositionsChanged();
+	}
+
+	public void clearPositions() {
+		ensureOwnPositions();
+		positions.clear();
+		onPositionsChanged();
+	}
+
+	/**
+	 * Batch change of stops, e.g. <code>editPositions().clear().add(...).commit()</code>.
+	 * Changes are applied together on {@link PositionsEditor#commit()}
+	 */
+	public PositionsEditor editPositions() {
+		return new PositionsEditor(this, positions);
+	}
+
+	/**
+	 * Uses the list itself instead of a copy, so rows of a list can share one stop configuration.
+	 * The list must not be changed afterwards; add / clear methods of this layout copy it first
+	 */
+	public void setSharedPositions(ArrayList<StopPosition> positions) {
+		this.positions = positions;
+		this.isPositionsShared = true;
+		onPositionsChanged();
+	}
+
+	/**
+	 * Rebinds a recycled list row in O(1), without running init again: state of the previously bound id is
+	 * saved to the store, state of the new id is applied without animation ( collapsed to the initial height if
+	 * it has none ). State is also saved every time the panel settles
+	 *
+	 * @param id    stable adapter id of the item
+	 * @param store state of all items of the list, shared by all rows
+	 */
+	public void bindState(long id, PanelStateStore store) {
+		stopSettle();
+		if (isRenderThreadSettleActive) {
+			finishRenderThreadSettle(this.getLayoutParams().height + contentContainer.getTranslationY());
+		}
+		if (isTranslationDragActive) {
+			commitDragHeight(dragHeight);
+		}
+
+		if (boundStore == null) {
+			unboundHeight = this.getLayoutParams().height;
+		}
+		else {
+			saveBoundState();
+		}
+		boundStore = store;
+		boundId = id;
+
+		long state = store.get(id, NO_STATE);
+		if (state == NO_STATE) {
+			applyState(unboundHeight, PanelStateMachine.NONE, Direction.DOWN);
+		}
+		else {
+			int stop = (int) ((state >> 1) & 0xFFFF);
+			stop = stop == 0xFFFF || stop >= positions.size() ? PanelStateMachine.NONE : stop;
+			applyState((int) (state >> 32), stop, (state & 1) == 0 ? Direction.DOWN : Direction.UP);
+		}
+	}
+
+	/**
+	 * Action containers removed by mode changes go to the pool, new ones are taken from it first.
+	 * The first container is created by the constructor: to pool that one too, let the Context provide
+	 * the pool ( {@link ActionContainerPool.Owner} )
+	 */
+	public void setActionContainerPool(ActionContainerPool pool) {
+		this.actionContainerPool = pool;
+	}
+
+	public LayoutMode getMode() {
+		return LayoutMode.values()[mMode];
+	}
+
+	public void setMode(LayoutMode mMode) {
+		setMode(mMode, null);
+	}
+
+	public void setMode(LayoutMode mMode, Direction direction) {
+		if (this.mMode == mMode.ordinal() && (direction == null || direction == getDirection()))
+			return;
+
+		this.mMode = mMode.ordinal();
+
+		if (direction != null)
+			stateMachine.setUp(direction == Direction.UP);
+
+		removeActionContainer();
+		addActionContainer();
+	}
+
+	public DragMode getDragMode() {
+		return mDragMode;
+	}
+
+	/**
+	 * Selects how the panel follows the finger in SWIPE mode, see {@link DragMode}
+	 */
+	public void setDragMode(DragMode dragMode) {
+		if (isTranslationDragActive) {
+			commitDragHeight(dragHeight);
+		}
+		this.mDragMode = dragMode;
+	}
+
+	public boolean isMoveCoalescing() {
+		return isMoveCoalescing;
+	}
+
+	/**
+	 * Drag moves are applied at most once per frame, from a frame callback of the same frame the input
+	 * arrived in. All move samples ( including batched history ) still count for click detection and
+	 * fling velocity, the last one is applied on finger up
+	 */
+	public void setMoveCoalescing(boolean isMoveCoalescing) {
+		if (!isMoveCoalescing) {
+			applyPendingMove();
+		}
+		this.isMoveCoalescing = isMoveCoalescing;
+	}
+
+	/**
+	 * Content of the panel is inflated from the layout resource off the main thread ( {@link AsyncLayoutInflater},
+	 * same limitations ) and added to the content container when ready: the first time the panel expands,
+	 * or when the main thread is idle after attach if isIdleInflate is set. Content already in the container stays
+	 *
+	 * @param listener placeholder and ready callbacks, may be null
+	 */
+	public void setLazyContent(@LayoutRes int layout, boolean isIdleInflate, OnLazyContentListener listener) {
+		setLazyContent(layout, null, isIdleInflate, listener);
+	}
+
+	/**
+	 * Same as {@link #setLazyContent(int, boolean, OnLazyContentListener)}, content is created by the factory
+	 * on a background thread, or on the main thread if that throws
+	 */
+	public void setLazyContent(ContentFactory factory, boolean isIdleInflate, OnLazyContentListener listener) {
+		setLazyContent(UNSET, factory, isIdleInflate, listener);
+	}
+
+	/**
+	 * @return true once lazy content was added to the content container, or if there is no lazy content
+	 */
+	public boolean isContentReady() {
+		return lazyContentState == LazyContentState.NONE || lazyContentState == LazyContentState.READY;
+	}
+
+	public boolean isPredictiveMeasure() {
+		return isPredictiveMeasure;
+	}
+
+	/**
+	 * While the content is hidden ( panel at min height ), it is measured and laid out for the next likely stop
+	 * when the main thread is idle, so it doesn't have to be done in the first frame of the expand
+	 */
+	public void setPredictiveMeasure(boolean isPredictiveMeasure) {
+		this.isPredictiveMeasure = isPredictiveMeasure;
+		schedulePredictiveMeasure();
+	}
+
+	public LayerPolicy getLayerPolicy() {
+		return mLayerPolicy;
+	}
+
+	/**
+	 * Selects how the content is drawn while the panel moves, see {@link LayerPolicy}.
+	 * {@link SwipeMetrics#getOverBudgetRatio(LayerPolicy)} compares frames of gestures run with each policy
+	 */
+	public void setLayerPolicy(LayerPolicy layerPolicy) {
+		endMotionLayer();
+		this.mLayerPolicy = layerPolicy;
+		scheduleSnapshotAllocation();
+	}
+
+	public ContentReveal getContentReveal() {
+		return mContentReveal;
+	}
+
+	/**
+	 * Selects how the content is hidden at min height and revealed while expanding, see {@link ContentReveal}
+	 */
+	public void setContentReveal(ContentReveal contentReveal) {
+		if (mContentReveal == contentReveal)
+			return;
+
+		this.mContentReveal = contentReveal;
+		if (contentReveal == ContentReveal.CLIP) {
+			if (contentContainer.getVisibility() == GONE) {
+				contentContainer.setVisibility(INVISIBLE);
+			}
+		}
+		else {
+			contentContainer.setClipBounds(null);
+			int height = this.getLayoutParams() == null ? UNSET : this.getLayoutParams().height;
+			contentContainer.setVisibility(height >= 0 && height <= minHeight ? GONE : VISIBLE);
+		}
+		this.requestLayout();
+	}
+
+	public NestedScrollMode getNestedScrollMode() {
+		return mNestedScrollMode;
+	}
+
+	/**
+	 * Selects how scrolling content moves the panel in SWIPE mode, see {@link NestedScrollMode}.
+	 * Stops can override it with {@link StopPosition#setNestedScrollMode(NestedScrollMode)}
+	 */
+	public void setNestedScrollMode(NestedScrollMode nestedScrollMode) {
+		this.mNestedScrollMode = nestedScrollMode;
+	}
+
+	public SettleMode getSettleMode() {
+		return mSettleMode;
+	}
+
+	/**
+	 * Selects how the panel animates to the stop position, see {@link SettleMode}
+	 */
+	public void setSettleMode(SettleMode settleMode) {
+		this.mSettleMode = settleMode;
+	}
+
+	/**
+	 * Spring used by {@link SettleMode#SPRING}
+	 * @param stiffness    spring constant, higher is faster
+	 * @param dampingRatio 1 - no bounce, below 1 - bouncy
+	 */
+	public void setSpring(float stiffness, float dampingRatio) {
+		spring.setStiffness(stiffness);
+		spring.setDampingRatio(dampingRatio);
+	}
+
+	/**
+	 * Stop resolutions served from the current layout generation
+	 */
+	public int getStopCacheHits() {
+		return stopCacheHits;
+	}
+
+	/**
+	 * Stop resolutions computed because layout, min or max height changed since the last one
+	 */
+	public int getStopCacheMisses() {
+		return stopCacheMisses;
+	}
+
+	/**
+	 * Wraps touch handling and settle frames of all SwipeLayouts in systrace sections, e.g. enable it in debug
+	 * builds of the app. Off by default, a disabled section costs one field read
+	 */
+	public static void setTraceSectionsEnabled(boolean isEnabled) {
+		sTraceSections = isEnabled;
+	}
+
+	/**
+	 * Diagnostics of every touch event this layout handles, pass null to disable
+	 */
+	public void setGestureTraceListener(GestureTraceListener listener) {
+		this.gestureTraceListener = listener;
+	}
+
+	/**
+	 * Enables per-gesture metrics ( duration, layout passes, frames over budget, settle target and duration ),
+	 * pass null to disable. Aggregated histograms are available from {@link #getMetrics()}
+	 */
+	public void setOnMetricsListener(SwipeMetrics.OnMetricsListener listener) {
+		if (metrics != null) {
+			metrics.stop();
+		}
+		if (listener == null) {
+			metrics = null;
+			return;
+		}
+
+		WindowManager windowManager = (WindowManager) getContext().getSystemService(Context.WINDOW_SERVICE);
+		metrics = new SwipeMetrics(this, listener, windowManager.getDefaultDisplay().getRefreshRate());
+	}
+
+	/**
+	 * @return aggregated metrics, null while no metrics listener is set
+	 */
+	public SwipeMetrics getMetrics() {
+		return metrics;
+	}
+
+	public View getActionContainer() {
+		return actionContainer;
+	}
+
+	public RelativeLayout getContentContainer() {
+		return contentContainer;
+	}
+
+	public Direction getDirection() {
+		return stateMachine.isUp() ? Direction.UP : Direction.DOWN;
+	}
+
+	public void setDirection(Direction mDirection) {
+		stateMachine.setUp(mDirection == Direction.UP);
+		removeActionContainer();
+		addActionContainer();
+	}
+
+	public void swipeTo(final StopPosition position) {
 		this.post(new Runnable() {
 			@Override
 			public void run() {
-				position.calculateDistance(SwipeLayout.this, 0, calculateMaxHeight(), minHeight);
-				animate(SwipeLayout.this.getMeasuredHeight(), position.getHeight(0));
+				calculateMaxHeight();
+				float height;
+				int index = positions.indexOf(position);
+				if (index >= 0) {
+					height = getStateMachine().getStopHeight(index);
+				}
+				else {
+					View target = position.getTargetId() == NO_ID ? null : findViewById(position.getTargetId());
+					position.resolve(maxHeight, minHeight, target == null ? 0 : getTopInLayout(target), target == null ? 0 : target.getHeight(), 0);
+					height = position.getResolvedHeight();
+				}
+				if (metrics != null) {
+					metrics.onSettleStart(position);
+				}
+				animate(SwipeLayout.this.getMeasuredHeight(), height);
+			}
+		});
+	}
+
+	/**
+	 * {@link PositionsEditor#commit()}: one list change, one resolution pass if already laid out
+	 */
+	void commitPositions(ArrayList<StopPosition> edited, boolean isSettleToNearest) {
+		boolean hadStop = stateMachine.getCurrentStop() != PanelStateMachine.NONE;
+		if (isPositionsShared) {
+			positions = new ArrayList<>(edited);
+			isPositionsShared = false;
+		}
+		else {
+			positions.clear();
+			positions.addAll(edited);
+		}
+		onPositionsChanged();
+
+		if (!ViewCompat.isLaidOut(this))
+			return;
+
+		// committed stops are resolved here, not on the first query after the commit
+		PanelStateMachine machine = getStateMachine();
+		if (hadStop && machine.getCurrentStop() == PanelStateMachine.NONE && isSettleToNearest) {
+			int nearest = machine.release(this.getMeasuredHeight());
+			if (nearest == PanelStateMachine.NONE)
+				return;
+
+			currentClosestPosition = positions.get(nearest);
+			if (metrics != null) {
+				metrics.onSettleStart(currentClosestPosition);
+			}
+			animate(this.getMeasuredHeight(), machine.getStopHeight(nearest));
+		}
+	}
+
+	/*-------------------------*/
+	/*     IS METHODS          */
+	/*-------------------------*/
+
+	public boolean isSwipe() {
+		return mMode == LayoutMode.SWIPE.ordinal();
+	}
+
+	public boolean isButton() {
+		return mMode == LayoutMode.BUTTON.ordinal();
+	}
+
+	public boolean isFixed() {
+		return mMode == LayoutMode.FIXED.ordinal();
+	}
+
+	public Boolean isDown() {
+		if (isButton()) {
+			return !stateMachine.isUp();
+		}
+		else {
+			return null;
+		}
+	}
+
+	public Boolean isUp() {
+		if (isButton()) {
+			return stateMachine.isUp();
+		}
+		else {
+			return null;
+		}
+	}
+
+	/*-------------------------*/
+	/*     PRIVATE METHODS     */
+	/*-------------------------*/
+
+	private void animate(float fromVal, float toVal) {
+		animate(fromVal, toVal, 0);
+	}
+
+	/**
+	 * @param velocity px/s of the finger, used only by {@link SettleMode#SPRING}
+	 */
+	private void animate(float fromVal, float toVal, float velocity) {
+		if (toVal > minHeight) {
+			requestLazyContent(true);
+		}
+		beginMotionLayer(isTranslationDragActive || (group == null && mSettleMode != SettleMode.SPRING && canSettleOnRenderThread()));
+
+		if (group != null) {
+			settleInGroup(fromVal, toVal, velocity);
+			return;
+		}
+
+		if (mSettleMode == SettleMode.SPRING) {
+			settleWithSpring(fromVal, toVal, velocity);
+			return;
+		}
+
+		if (canSettleOnRenderThread()) {
+			settleOnRenderThread(fromVal, toVal);
+			return;
+		}
+
+		ValueAnimator previousAnimator = settleAnimator;
+		settleAnimator = ValueAnimator.ofFloat(0f, 1f);
+		settleFromHeight = fromVal;
+		settleToHeight = toVal;
+		if (previousAnimator != null) {
+			previousAnimator.cancel();
+		}
+
+		settleAnimator.addUpdateListener(settleUpdateListener);
+		settleAnimator.addListener(settleListener);
+		settleAnimator.start();
+	}
+
+	/**
+	 * {@link SettleMode#SPRING}: retargets the running spring keeping its velocity, or starts a new one
+	 */
+	private void settleWithSpring(float fromVal, float toVal, float velocity) {
+		boolean isRunning = spring.isRunning();
+		spring.start(fromVal, velocity, Math.max(minHeight, Math.min(maxHeight, toVal)));
+		if (!isRunning) {
+			springFrameTime = 0;
+			Choreographer.getInstance().postFrameCallback(springFrame);
+		}
+	}
+
+	/**
+	 * stops ANIMATOR and SPRING settles where they are, without committing
+	 */
+	private void stopSettle() {
+		if (settleAnimator != null) {
+			ValueAnimator animator = settleAnimator;
+			settleAnimator = null;
+			animator.cancel();
+		}
+		if (spring.isRunning()) {
+			spring.stop();
+			Choreographer.getInstance().removeFrameCallback(springFrame);
+			springFrameTime = 0;
+		}
+		if (isGroupSettleActive) {
+			isGroupSettleActive = false;
+			group.onSettleStopped(this);
+		}
+	}
+
+	/**
+	 * settle stepped by {@link SwipeLayoutGroup}: SPRING keeps its physics, other modes interpolate over
+	 * {@link #SETTLE_DURATION}. RENDER_THREAD is replaced by that interpolation too, with a layout pass per frame
+	 */
+	private void settleInGroup(float fromVal, float toVal, float velocity) {
+		if (isRenderThreadSettleActive) {
+			finishRenderThreadSettle(this.getLayoutParams().height + contentContainer.getTranslationY());
+		}
+		settleFromHeight = fromVal;
+		settleToHeight = Math.max(minHeight, Math.min(maxHeight, toVal));
+		groupSettleStartTime = 0;
+		if (mSettleMode == SettleMode.SPRING) {
+			if (!spring.isRunning()) {
+				springFrameTime = 0;
+			}
+			spring.start(fromVal, velocity, settleToHeight);
+		}
+		isGroupSettleActive = true;
+		group.onSettleStart(this);
+	}
+
+	/**
+	 * one frame of a group settle, layout is requested here and done by the group's layout pass
+	 *
+	 * @return true while still moving
+	 */
+	boolean onGroupFrame(long frameTimeNanos) {
+		float height;
+		boolean isMoving;
+		if (mSettleMode == SettleMode.SPRING) {
+			float seconds = springFrameTime == 0 ? 0.016f : (frameTimeNanos - springFrameTime) / 1000000000f;
+			springFrameTime = frameTimeNanos;
+			isMoving = spring.step(seconds);
+			height = spring.getPosition();
+		}
+		else {
+			if (groupSettleStartTime == 0) {
+				groupSettleStartTime = frameTimeNanos;
+			}
+			float fraction = Math.min(1f, (frameTimeNanos - groupSettleStartTime) / (SETTLE_DURATION * 1000000f));
+			height = settleFromHeight + (settleToHeight - settleFromHeight) * SETTLE_INTERPOLATOR.getInterpolation(fraction);
+			isMoving = fraction < 1f;
+		}
+		applySettleHeight(height);
+		return isMoving;
+	}
+
+	void onGroupSettleEnd() {
+		isGroupSettleActive = false;
+		springFrameTime = 0;
+		onSettleEnd();
+	}
+
+	void setGroup(SwipeLayoutGroup group) {
+		stopSettle();
+		this.group = group;
+	}
+
+	/**
+	 * @return true if the panel is ( or settles ) above its lowest stop
+	 */
+	boolean isExpanded() {
+		float height = isGroupSettleActive ? settleToHeight : getCurrentHeight();
+		return height > getCollapsedHeight() + 1;
+	}
+
+	boolean isGroupSettleExpanding() {
+		return isGroupSettleActive && settleToHeight > getCollapsedHeight() + 1;
+	}
+
+	/**
+	 * settles to the lowest stop ( min height without stops ) through the group
+	 */
+	void collapseInGroup() {
+		int lowest = getLowestStop();
+		stateMachine.setCurrentStop(lowest);
+		currentClosestPosition = lowest == PanelStateMachine.NONE ? null : positions.get(lowest);
+		if (metrics != null) {
+			metrics.onSettleStart(currentClosestPosition);
+		}
+		animate(getCurrentHeight(), getCollapsedHeight());
+	}
+
+	private int getLowestStop() {
+		PanelStateMachine machine = getStateMachine();
+		int lowest = PanelStateMachine.NONE;
+		for (int i = 0; i < machine.getStopCount(); i++) {
+			if (lowest == PanelStateMachine.NONE || machine.getStopHeight(i) < machine.getStopHeight(lowest)) {
+				lowest = i;
+			}
+		}
+		return lowest;
+	}
+
+	private float getCollapsedHeight() {
+		int lowest = getLowestStop();
+		return lowest == PanelStateMachine.NONE ? minHeight : Math.max(minHeight, getStateMachine().getStopHeight(lowest));
+	}
+
+	/**
+	 * height of the panel now, also between a height change and the layout pass that applies it
+	 */
+	private float getCurrentHeight() {
+		if (isTranslationDragActive)
+			return dragHeight;
+
+		ViewGroup.LayoutParams params = this.getLayoutParams();
+		return params != null && params.height >= 0 ? params.height : this.getHeight();
+	}
+
+	private void applyPendingMove() {
+		if (Float.isNaN(pendingMoveY))
+			return;
+
+		float moveY = pendingMoveY;
+		pendingMoveY = Float.NaN;
+		dragBy(moveY - prevYVal);
+		prevYVal = moveY;
+	}
+
+	private void setLazyContent(int layout, ContentFactory factory, boolean isIdleInflate, OnLazyContentListener listener) {
+		lazyContentLayout = layout;
+		lazyContentFactory = factory;
+		lazyContentListener = listener;
+		isLazyContentIdleInflate = isIdleInflate;
+		isLazyContentPlaceholder = false;
+		lazyContentToken++;
+		lazyContentState = LazyContentState.PENDING;
+		if (ViewCompat.isAttachedToWindow(this)) {
+			scheduleLazyContentIdle();
+		}
+	}
+
+	private void scheduleLazyContentIdle() {
+		if (lazyContentState != LazyContentState.PENDING || !isLazyContentIdleInflate || isLazyContentIdleQueued)
+			return;
+
+		isLazyContentIdleQueued = true;
+		Looper.myQueue().addIdleHandler(lazyContentIdle);
+	}
+
+	/**
+	 * starts inflation of lazy content if it didn't start yet
+	 *
+	 * @param isNeeded panel is expanding: listener is told once to show a placeholder if content isn't ready
+	 */
+	@VisibleForTesting
+	void requestLazyContent(boolean isNeeded) {
+		if (lazyContentState == LazyContentState.NONE || lazyContentState == LazyContentState.READY)
+			return;
+
+		if (lazyContentState == LazyContentState.PENDING) {
+			lazyContentState = LazyContentState.INFLATING;
+			lazyContentRequestTime = SystemClock.uptimeMillis();
+			inflateLazyContent(lazyContentToken);
+		}
+		if (isNeeded && !isLazyContentPlaceholder) {
+			isLazyContentPlaceholder = true;
+			if (lazyContentListener != null) {
+				lazyContentListener.onContentPlaceholder(this);
+			}
+		}
+	}
+
+	private void inflateLazyContent(final int token) {
+		if (lazyContentFactory == null) {
+			new AsyncLayoutInflater(getContext()).inflate(lazyContentLayout, contentContainer, new AsyncLayoutInflater.OnInflateFinishedListener() {
+				@Override
+				public void onInflateFinished(View view, int resid, ViewGroup parent) {
+					onLazyContentInflated(token, view);
+				}
+			});
+			return;
+		}
+
+		final ContentFactory factory = lazyContentFactory;
+		final Context context = getContext();
+		lazyContentExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				View created;
+				try {
+					created = factory.createContent(context);
+				}
+				catch (RuntimeException e) {
+					// e.g. views creating a Handler without a Looper: created on the main thread, as AsyncLayoutInflater falls back
+					created = null;
+				}
+
+				final View view = created;
+				post(new Runnable() {
+					@Override
+					public void run() {
+						if (view != null) {
+							onLazyContentInflated(token, view);
+						}
+						else if (token == lazyContentToken && lazyContentState == LazyContentState.INFLATING) {
+							onLazyContentInflated(token, factory.createContent(context));
+						}
+					}
+				});
 			}
 		});
 	}
 
-	/*-------------------------*/
-	/*     IS METHODS          */
-	/*-------------------------*/
+	private void onLazyContentInflated(int token, View view) {
+		if (token != lazyContentToken || lazyContentState != LazyContentState.INFLATING)
+			return;
 
-	public boolean isSwipe() {
-		return mMode == LayoutMode.SWIPE.ordinal();
+		lazyContentState = LazyContentState.READY;
+		contentContainer.addView(view);
+		// stop targets can be in the new content
+		onPositionsChanged();
+		schedulePredictiveMeasure();
+		if (lazyContentListener != null) {
+			lazyContentListener.onContentReady(this, view, SystemClock.uptimeMillis() - lazyContentRequestTime);
+		}
+	}
+
+	@VisibleForTesting
+	boolean isPredictiveMeasureQueued() {
+		return isPredictionQueued;
+	}
+
+	private void schedulePredictiveMeasure() {
+		if (!isPredictiveMeasure || isPredictionQueued)
+			return;
+
+		isPredictionQueued = true;
+		Looper.myQueue().addIdleHandler(predictiveMeasure);
+	}
+
+	/**
+	 * next stop down from the current one ( up for BUTTON mode going up ), collapsing needs no measure
+	 *
+	 * @return list index of the predicted stop, {@link PanelStateMachine#NONE} if there is none
+	 */
+	private int predictNextStop() {
+		int current = stateMachine.getCurrentStop() != PanelStateMachine.NONE ? stateMachine.getCurrentStop() : calculateClosest(getCurrentHeight());
+		if (current == PanelStateMachine.NONE)
+			return PanelStateMachine.NONE;
+
+		if (isButton() && stateMachine.isUp())
+			return getStateMachine().nextUp(current);
+		return getStateMachine().nextDown(current);
+	}
+
+	/**
+	 * Only hidden content is measured here: measuring visible content outside of a layout pass would change
+	 * what is on screen. Visible content that doesn't depend on the height is never measured again anyway
+	 */
+	@VisibleForTesting
+	void premeasureNextStop() {
+		if (contentContainer.getVisibility() != GONE || getWidth() == 0 || isSettling() || canBeSwipeProcessed)
+			return;
+
+		int next = predictNextStop();
+		if (next == PanelStateMachine.NONE)
+			return;
+
+		int height = (int) Math.min(maxHeight, getStateMachine().getStopHeight(next));
+		if (height <= minHeight)
+			return;
+
+		int actionHeight = actionContainer == null ? 0 : actionContainer.getMeasuredHeight();
+		measureContent(MeasureSpec.makeMeasureSpec(getWidth(), MeasureSpec.EXACTLY), MeasureSpec.makeMeasureSpec(height, MeasureSpec.EXACTLY), actionHeight);
+
+		int left = getPaddingLeft();
+		int top = getPaddingTop();
+		int contentBottom = height - getPaddingBottom() - actionHeight;
+		contentContainer.layout(left, top, left + contentContainer.getMeasuredWidth(), Math.max(top, contentBottom));
+	}
+
+	private void endGesture() {
+		endMotionLayer();
+		if (metrics != null) {
+			metrics.onGestureEnd();
+		}
+	}
+
+	/**
+	 * @param isSizeFixed the content container keeps its size during the motion, a hardware layer resized
+	 *                    every frame would be re-rendered every frame
+	 */
+	private void beginMotionLayer(boolean isSizeFixed) {
+		if (isMotionLayerActive || mLayerPolicy == LayerPolicy.NONE)
+			return;
+		if (mLayerPolicy == LayerPolicy.HARDWARE_LAYER && !isSizeFixed && mContentReveal != ContentReveal.CLIP)
+			return;
+
+		isMotionLayerActive = true;
+		if (mLayerPolicy == LayerPolicy.HARDWARE_LAYER) {
+			layerTypeBeforeMotion = contentContainer.getLayerType();
+			if (layerTypeBeforeMotion != LAYER_TYPE_HARDWARE && this.isHardwareAccelerated()) {
+				contentContainer.setLayerType(LAYER_TYPE_HARDWARE, null);
+			}
+		}
+		else {
+			captureSnapshot();
+		}
+	}
+
+	private void endMotionLayer() {
+		if (!isMotionLayerActive)
+			return;
+
+		isMotionLayerActive = false;
+		if (mLayerPolicy == LayerPolicy.HARDWARE_LAYER) {
+			if (contentContainer.getLayerType() != layerTypeBeforeMotion) {
+				contentContainer.setLayerType(layerTypeBeforeMotion, null);
+			}
+		}
+		else {
+			releaseSnapshot();
+		}
+	}
+
+	/**
+	 * draws the laid out content once; content following the panel height would be wrong at other heights,
+	 * so it keeps being drawn live ( unless {@link ContentReveal#CLIP} keeps its height fixed ).
+	 * Without a fitting bitmap this motion is drawn live too, the bitmap is allocated on idle for the next one
+	 */
+	private void captureSnapshot() {
+		int height = getSnapshotHeight();
+		if (contentContainer.getVisibility() != VISIBLE || height <= 0)
+			return;
+		if (!hasSnapshotBitmap(height)) {
+			scheduleSnapshotAllocation();
+			return;
+		}
+
+		contentSnapshot.eraseColor(0);
+		contentContainer.draw(snapshotCanvas);
+		isSnapshotActive = true;
+		this.invalidate();
+	}
+
+	/**
+	 * @return height of the laid out content a snapshot covers, 0 if it can't be snapshotted
+	 */
+	private int getSnapshotHeight() {
+		if (Float.isNaN(maxHeight) || contentContainer.getWidth() == 0
+				|| (mContentReveal != ContentReveal.CLIP && isContentHeightDependent()))
+			return 0;
+
+		// natural height of long content can be far taller than the panel ever reveals
+		int actionHeight = actionContainer == null ? 0 : actionContainer.getMeasuredHeight();
+		int revealable = (int) maxHeight - getPaddingTop() - getPaddingBottom() - actionHeight;
+		return Math.max(0, Math.min(revealable, Math.max(contentContainer.getHeight(), contentContainer.getMeasuredHeight())));
+	}
+
+	private boolean hasSnapshotBitmap(int height) {
+		return contentSnapshot != null && contentSnapshot.getWidth() == contentContainer.getWidth() && contentSnapshot.getHeight() >= height;
+	}
+
+	/**
+	 * allocating the bitmap in the first move frame would drop that frame, it's done when the main thread is idle
+	 */
+	private void scheduleSnapshotAllocation() {
+		if (mLayerPolicy != LayerPolicy.SNAPSHOT || isSnapshotAllocationQueued)
+			return;
+
+		int height = getSnapshotHeight();
+		if (height <= 0 || hasSnapshotBitmap(height))
+			return;
+
+		isSnapshotAllocationQueued = true;
+		Looper.myQueue().addIdleHandler(snapshotAllocation);
+	}
+
+	@VisibleForTesting
+	void allocateSnapshot() {
+		int height = getSnapshotHeight();
+		if (mLayerPolicy != LayerPolicy.SNAPSHOT || isSnapshotActive || height <= 0 || hasSnapshotBitmap(height))
+			return;
+
+		if (contentSnapshot != null) {
+			contentSnapshot.recycle();
+			contentSnapshot = null;
+			snapshotCanvas = null;
+		}
+		try {
+			contentSnapshot = Bitmap.createBitmap(contentContainer.getWidth(), height, Bitmap.Config.ARGB_8888);
+		} catch (OutOfMemoryError e) {
+			// no room for the bitmap, content is drawn live
+			return;
+		}
+		snapshotCanvas = new Canvas(contentSnapshot);
+	}
+
+	@VisibleForTesting
+	boolean isSnapshotActive() {
+		return isSnapshotActive;
+	}
+
+	private void releaseSnapshot() {
+		if (!isSnapshotActive)
+			return;
+
+		isSnapshotActive = false;
+		this.invalidate();
+	}
+
+	private boolean isOutOfClick(float x, float y) {
+		return (!Float.isNaN(downYVal) && Math.abs(downYVal - y) > 50) || (!Float.isNaN(downXVal) && Math.abs(downXVal - x) > 50);
+	}
+
+	/**
+	 * moves the bottom edge of the panel by delta px ( positive is down ), within min and max height
+	 *
+	 * @return px actually moved
+	 */
+	private float dragBy(float delta) {
+		beginMotionLayer(mDragMode == DragMode.TRANSLATION);
+		// taps and grabs that never move the panel are no gestures
+		if (metrics != null && delta != 0 && (delta > 0 ? getCurrentHeight() < maxHeight : getCurrentHeight() > minHeight)) {
+			metrics.onMotionStart();
+		}
+		return mDragMode == DragMode.TRANSLATION ? dragTranslation(delta) : dragLayout(delta);
+	}
+
+	private float dragTranslation(float delta) {
+		if (!isTranslationDragActive) {
+			startTranslationDrag();
+		}
+		float before = dragHeight;
+		applyDragHeight(dragHeight + delta);
+		return dragHeight - before;
+	}
+
+	private float dragLayout(float delta) {
+		ViewGroup.LayoutParams params = this.getLayoutParams();
+		int before = params.height;
+
+		if (params.height == ViewGroup.LayoutParams.MATCH_PARENT || params.height == ViewGroup.LayoutParams.WRAP_CONTENT)
+			params.height = this.getMeasuredHeight();
+
+		int from = params.height;
+		params.height += delta;
+
+		if (params.height < minHeight) {
+			params.height = (int) minHeight;
+			setContentVisibility(GONE);
+		}
+		else if (params.height > maxHeight) {
+			params.height = (int) maxHeight;
+		}
+		else {
+			setContentVisibility(VISIBLE);
+		}
+
+		if (params.height != before) {
+			this.setLayoutParams(params);
+		}
+		return params.height - from;
+	}
+
+	/**
+	 * @param dy scroll of the content, positive when it scrolls towards its end ( finger up )
+	 * @return part of dy the panel consumed
+	 */
+	private int dragNested(int dy) {
+		int moved = Math.round(dragBy(-dy));
+		if (moved != 0) {
+			isNestedDragged = true;
+		}
+		return -moved;
+	}
+
+	/**
+	 * end of a nested scroll that moved the panel: velocity ( px/s, positive grows the panel ) picks the stop
+	 */
+	private void settleNested(float velocity) {
+		isNestedDragged = false;
+		float height = isTranslationDragActive ? dragHeight : this.getHeight();
+		int closestIndex = getStateMachine().release(velocity == 0 ? height : PanelSpring.projectFling(height, velocity));
+		if (closestIndex == PanelStateMachine.NONE) {
+			if (isTranslationDragActive) {
+				commitDragHeight(dragHeight);
+			}
+			endGesture();
+			return;
+		}
+
+		currentClosestPosition = positions.get(closestIndex);
+		if (metrics != null) {
+			metrics.onSettleStart(currentClosestPosition);
+		}
+		animate(height, stateMachine.getStopHeight(closestIndex), velocity);
+	}
+
+	private NestedScrollMode getCurrentNestedScrollMode() {
+		if (currentClosestPosition != null && currentClosestPosition.getNestedScrollMode() != null)
+			return currentClosestPosition.getNestedScrollMode();
+		return mNestedScrollMode;
+	}
+
+	private boolean isSettling() {
+		return settleAnimator != null || spring.isRunning() || isRenderThreadSettleActive || isGroupSettleActive;
+	}
+
+	@VisibleForTesting
+	void applySettleHeight(float height) {
+		boolean isTraced = sTraceSections;
+		if (isTraced) {
+			Trace.beginSection("SwipeLayout#settleFrame");
+		}
+		if (isTranslationDragActive) {
+			applyDragHeight(height);
+		}
+		else {
+			ViewGroup.LayoutParams params = SwipeLayout.this.getLayoutParams();
+			if (height < minHeight) {
+				params.height = (int) minHeight;
+			}
+			else if (height > maxHeight) {
+				params.height = (int) maxHeight;
+			}
+			else {
+				params.height = (int) height;
+			}
+			SwipeLayout.this.setLayoutParams(params);
+		}
+		if (isTraced) {
+			Trace.endSection();
+		}
+	}
+
+	private void onSettleEnd() {
+		if (isTranslationDragActive) {
+			commitDragHeight(dragHeight);
+		}
+		checkButtonText();
+		saveBoundState();
+		schedulePredictiveMeasure();
+		endGesture();
+	}
+
+	/**
+	 * events come from action container first and from this view after interception,
+	 * so velocity is tracked in raw coordinates
+	 */
+	private void addVelocityMovement(MotionEvent event) {
+		float offsetX = event.getRawX() - event.getX();
+		float offsetY = event.getRawY() - event.getY();
+		event.offsetLocation(offsetX, offsetY);
+		velocityTracker.addMovement(event);
+		event.offsetLocation(-offsetX, -offsetY);
+	}
+
+	private boolean canSettleOnRenderThread() {
+		return mSettleMode == SettleMode.RENDER_THREAD
+				&& Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP
+				&& this.isHardwareAccelerated();
+	}
+
+	/**
+	 * {@link SettleMode#RENDER_THREAD}: the panel is laid out once at the larger of both heights,
+	 * action container and content window are moved with {@link android.view.ViewPropertyAnimator},
+	 * content children are counter-translated to stay in place. Final height is committed once, when the
+	 * content container animation ends. Animators are stepped on the UI thread like any other, only measure and
+	 * layout are saved per frame; a busy main thread still drops settle frames
+	 */
+	@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+	private void settleOnRenderThread(float fromVal, float toVal) {
+		fromVal = Math.max(minHeight, Math.min(maxHeight, fromVal));
+		toVal = Math.max(minHeight, Math.min(maxHeight, toVal));
+
+		ViewGroup.LayoutParams params = this.getLayoutParams();
+		int layoutHeight = (int) Math.max(fromVal, toVal);
+		if (isTranslationDragActive) {
+			isTranslationDragActive = false;
+			this.setClipBounds(null);
+			// a translation drag already laid the panel out, at least as tall unless the settle goes higher
+			layoutHeight = Math.max(layoutHeight, params.height);
+		}
+		if (params.height != layoutHeight) {
+			params.height = layoutHeight;
+			this.setLayoutParams(params);
+		}
+
+		// snapshot is drawn at the container position, counter-translated children need the live content
+		releaseSnapshot();
+
+		setSettleOffset(fromVal - layoutHeight);
+
+		long duration = SETTLE_DURATION;
+		float offset = toVal - layoutHeight;
+		if (actionContainer != null) {
+			actionContainer.animate().translationY(offset).setDuration(duration).start();
+		}
+		for (int i = 0; i < contentContainer.getChildCount(); i++) {
+			contentContainer.getChildAt(i).animate().translationY(-offset).setDuration(duration).start();
+		}
+		// committed from the last frame of the animation, a delayed post could cancel it before that frame
+		contentContainer.animate().translationY(offset).setDuration(duration).withEndAction(settleCommit).start();
+
+		isRenderThreadSettleActive = true;
+		settleTargetHeight = toVal;
+	}
+
+	private void setSettleOffset(float offset) {
+		if (actionContainer != null) {
+			actionContainer.setTranslationY(offset);
+		}
+		contentContainer.setTranslationY(offset);
+		for (int i = 0; i < contentContainer.getChildCount(); i++) {
+			contentContainer.getChildAt(i).setTranslationY(-offset);
+		}
+	}
+
+	private void finishRenderThreadSettle(float height) {
+		isRenderThreadSettleActive = false;
+
+		if (actionContainer != null) {
+			actionContainer.animate().cancel();
+		}
+		contentContainer.animate().cancel();
+		for (int i = 0; i < contentContainer.getChildCount(); i++) {
+			contentContainer.getChildAt(i).animate().cancel();
+		}
+		setSettleOffset(0);
+
+		ViewGroup.LayoutParams params = this.getLayoutParams();
+		params.height = (int) height;
+		this.setLayoutParams(params);
+		checkButtonText();
+		saveBoundState();
+		schedulePredictiveMeasure();
+		endGesture();
+	}
+
+	/**
+	 * {@link DragMode#TRANSLATION}: the panel keeps its layout height, the drag itself
+	 * only moves clip bounds and the action container translation
+	 */
+	private void startTranslationDrag() {
+		dragHeight = this.getMeasuredHeight();
+		isTranslationDragActive = true;
+		calculateMaxHeight();
+
+		ViewGroup.LayoutParams params = this.getLayoutParams();
+		if (params.height < 0) {
+			params.height = this.getMeasuredHeight();
+		}
+	}
+
+	/**
+	 * a drag above the layout height lays the panel out once at max height, collapsing needs no layout until the settle
+	 */
+	private void applyDragHeight(float height) {
+		if (height < minHeight) {
+			height = minHeight;
+			setContentVisibility(GONE);
+		}
+		else if (height > maxHeight) {
+			height = maxHeight;
+		}
+		else {
+			setContentVisibility(VISIBLE);
+		}
+		dragHeight = height;
+		if (mContentReveal == ContentReveal.CLIP) {
+			updateRevealVisibility(height - minHeight);
+		}
+
+		ViewGroup.LayoutParams params = this.getLayoutParams();
+		if (height > params.height) {
+			params.height = (int) maxHeight;
+			this.setLayoutParams(params);
+		}
+
+		dragClipBounds.set(0, 0, this.getWidth(), (int) height);
+		this.setClipBounds(dragClipBounds);
+		actionContainer.setTranslationY(height - params.height);
+	}
+
+	/**
+	 * {@link DragMode#TRANSLATION}: the only layout pass of the gesture, when the panel settles
+	 */
+	private void commitDragHeight(float height) {
+		isTranslationDragActive = false;
+		this.setClipBounds(null);
+		if (actionContainer != null) {
+			actionContainer.setTranslationY(0);
+		}
+
+		ViewGroup.LayoutParams params = this.getLayoutParams();
+		params.height = (int) height;
+		this.setLayoutParams(params);
+	}
+
+	/**
+	 * @return list index of the closest stop, {@link PanelStateMachine#NONE} if there are no stops
+	 */
+	private int calculateClosest(float YVal) {
+		return getStateMachine().closest(YVal);
+	}
+
+	/**
+	 * resolves every stop once and hands them to the state machine; queries are binary searches until something changes
+	 */
+	private PanelStateMachine getStateMachine() {
+		if (isStopTargetsDirty && captureStopTargets()) {
+			invalidateStops();
+		}
+
+		if (isStopIndexDirty) {
+			stateMachine.resetStops(positions.size());
+			for (int i = 0; i < positions.size(); i++) {
+				StopPosition position = positions.get(i);
+				resolveStop(i);
+				stateMachine.addStop(position.getAnchor(), position.getDistanceFromTop(), position.getResolvedHeight());
+			}
+			isStopIndexDirty = false;
+		}
+		return stateMachine;
+	}
+
+	private void resolveStop(int index) {
+		if (positions.get(index).resolve(maxHeight, minHeight, stopTargetTops[index], stopTargetHeights[index], stopGeneration)) {
+			stopCacheHits++;
+		}
+		else {
+			stopCacheMisses++;
+		}
+	}
+
+	/**
+	 * {@link ContentReveal#VISIBILITY} only, clip reveal decides visibility from the revealed height
+	 */
+	private void setContentVisibility(int visibility) {
+		if (mContentReveal == ContentReveal.CLIP || contentContainer.getVisibility() == visibility)
+			return;
+
+		contentContainer.setVisibility(visibility);
+		if (visibility == VISIBLE) {
+			requestLazyContent(true);
+		}
+		if (metrics != null) {
+			metrics.onVisibilityToggle();
+		}
+	}
+
+	/**
+	 * {@link ContentReveal#CLIP}: clips the content container to its revealed part, nothing is measured or laid out
+	 */
+	private void revealContent(int visibleHeight) {
+		contentClipBounds.set(0, 0, contentContainer.getWidth(), visibleHeight);
+		contentContainer.setClipBounds(contentClipBounds);
+		updateRevealVisibility(visibleHeight);
+	}
+
+	/**
+	 * INVISIBLE content keeps its layout and isn't drawn, it's shown again with hysteresis above min height
+	 */
+	private void updateRevealVisibility(float visibleHeight) {
+		int visibility = contentContainer.getVisibility();
+		if (visibleHeight <= 0 && visibility == VISIBLE) {
+			contentContainer.setVisibility(INVISIBLE);
+		}
+		else if (visibleHeight >= getPixelSize(REVEAL_HYSTERESIS_DP) && visibility != VISIBLE) {
+			contentContainer.setVisibility(VISIBLE);
+			requestLazyContent(true);
+		}
+	}
+
+	private void ensureOwnPositions() {
+		if (isPositionsShared) {
+			positions = new ArrayList<>(positions);
+			isPositionsShared = false;
+		}
+	}
+
+	/**
+	 * height, current stop and direction packed into one long: height << 32 | stop << 1 | direction
+	 */
+	private void saveBoundState() {
+		if (boundStore == null)
+			return;
+
+		int height = getStateHeight();
+		long stop = stateMachine.getCurrentStop() == PanelStateMachine.NONE ? 0xFFFF : stateMachine.getCurrentStop() & 0xFFFF;
+		boundStore.put(boundId, ((long) height << 32) | (stop << 1) | (stateMachine.isUp() ? 1 : 0));
 	}
 
-	public boolean isButton() {
-		return mMode == LayoutMode.BUTTON.ordinal();
-	}
+	/**
+	 * height to restore the panel at: drag height while dragging, target of a running settle
+	 */
+	private int getStateHeight() {
+		if (isSettling() && stateMachine.getCurrentStop() != PanelStateMachine.NONE)
+			return (int) getStateMachine().getStopHeight(stateMachine.getCurrentStop());
+
+		if (isTranslationDragActive)
+			return (int) dragHeight;
 
-	public boolean isFixed() {
-		return mMode == LayoutMode.FIXED.ordinal();
+		return this.getLayoutParams().height;
 	}
 
-	public Boolean isDown() {
-		if (isButton()) {
-			return SwipeLayout.this.mDirection == Direction.DOWN;
-		}
-		else {
-			return null;
+	/**
+	 * sets height, current stop and direction at once, without animation
+	 */
+	private void applyState(int height, int stop, Direction direction) {
+		stateMachine.setCurrentStop(stop);
+		currentClosestPosition = stop == PanelStateMachine.NONE ? null : positions.get(stop);
+		stateMachine.setUp(direction == Direction.UP);
+
+		ViewGroup.LayoutParams params = this.getLayoutParams();
+		if (params != null) {
+			params.height = height;
+			this.setLayoutParams(params);
 		}
-	}
+		setContentVisibility(height >= 0 && height <= minHeight ? GONE : VISIBLE);
 
-	public Boolean isUp() {
 		if (isButton()) {
-			return SwipeLayout.this.mDirection == Direction.UP;
-		}
-		else {
-			return null;
+			setButtonText();
 		}
+		schedulePredictiveMeasure();
 	}
 
-	/*-------------------------*/
-	/*     PRIVATE METHODS     */
-	/*-------------------------*/
-
-	private void animate(float fromVal, float toVal) {
-		ValueAnimator animation = ValueAnimator.ofFloat(fromVal, toVal);
-		animation.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-			@Override
-			public void onAnimationUpdate(ValueAnimator updatedAnimation) {
-				float animatedValue = (float) updatedAnimation.getAnimatedValue();
-				ViewGroup.LayoutParams params = SwipeLayout.this.getLayoutParams();
-				if (animatedValue < minHeight) {
-					params.height = minHeight.intValue();
-				}
-				else if (animatedValue > maxHeight) {
-					params.height = maxHeight.intValue();
-				}
-				else {
-					params.height = (int) animatedValue;
-				}
-				SwipeLayout.this.setLayoutParams(params);
+	/**
+	 * @param stops type and value pairs of saved stops
+	 * @return true if current positions have the same configuration
+	 */
+	private boolean hasPositions(int[] stops) {
+		if (stops.length != positions.size() * 2)
+			return false;
 
-			}
-		});
-		animation.addListener(new AnimatorListener() {
-			@Override
-			public void onAnimationStart(Animator animation) {
+		for (int i = 0; i < positions.size(); i++) {
+			StopPosition position = positions.get(i);
+			if (position.getType().ordinal() != stops[i * 2] || position.getConfigValue() != stops[i * 2 + 1])
+				return false;
+		}
+		return true;
+	}
 
-			}
+	/**
+	 * current stop keeps pointing at the same stop, or at none if it was removed
+	 */
+	private void onPositionsChanged() {
+		isStopTargetsDirty = true;
+		isStopIndexDirty = true;
+		stateMachine.setCurrentStop(currentClosestPosition == null ? PanelStateMachine.NONE : positions.indexOf(currentClosestPosition));
+		if (stateMachine.getCurrentStop() == PanelStateMachine.NONE) {
+			currentClosestPosition = null;
+		}
+	}
 
-			@Override
-			public void onAnimationEnd(Animator animation) {
-				checkButtonText();
+	/**
+	 * records bounds of stop target views, no measuring: values of the last layout pass are used
+	 *
+	 * @return true if any target moved or changed its height since the previous call
+	 */
+	private boolean captureStopTargets() {
+		int count = positions.size();
+		boolean isMoved = false;
+
+		if (isStopTargetsDirty) {
+			if (stopTargets.length < count) {
+				stopTargets = new View[count];
+				stopTargetTops = new int[count];
+				stopTargetHeights = new int[count];
 			}
-
-			@Override
-			public void onAnimationCancel(Animator animation) {
-
+			for (int i = 0; i < stopTargets.length; i++) {
+				int targetId = i < count ? positions.get(i).getTargetId() : NO_ID;
+				stopTargets[i] = targetId == NO_ID ? null : findViewById(targetId);
+				stopTargetTops[i] = 0;
+				stopTargetHeights[i] = 0;
 			}
+			isStopTargetsDirty = false;
+			isMoved = true;
+		}
 
-			@Override
-			public void onAnimationRepeat(Animator animation) {
+		for (int i = 0; i < count; i++) {
+			View target = stopTargets[i];
+			if (target == null)
+				continue;
 
+			int top = getTopInLayout(target);
+			int height = target.getHeight();
+			if (top != stopTargetTops[i] || height != stopTargetHeights[i]) {
+				stopTargetTops[i] = top;
+				stopTargetHeights[i] = height;
+				isMoved = true;
 			}
-		});
-		animation.start();
+		}
+		return isMoved;
 	}
 
-	private StopPosition calculateClosest(float YVal) {
-		StopPosition closestPosition = null;
-		for (StopPosition position : positions) {
-			if (closestPosition == null) {
-				closestPosition = position;
-				closestPosition.calculateDistance(this, YVal, maxHeight, minHeight);
-			}
-
-			position.calculateDistance(this, YVal, maxHeight, minHeight);
-			if (Math.abs(closestPosition.getDistance(YVal)) > Math.abs(position.getDistance(YVal))) {
-				closestPosition = position;
-			}
+	/**
+	 * layout top of the view, summed up to and including this layout ( as stops always measured it )
+	 */
+	private int getTopInLayout(View view) {
+		int top = 0;
+		while (view != null) {
+			top += view.getTop();
+			if (view == this)
+				break;
+			view = view.getParent() instanceof View ? (View) view.getParent() : null;
 		}
+		return top;
+	}
+
+	/**
+	 * resolved stop values are stale from now on
+	 */
+	private void invalidateStops() {
+		stopGeneration = ++sGenerationCounter;
+		isStopIndexDirty = true;
+	}
 
-		return closestPosition;
+	@VisibleForTesting
+	float getMaxHeight() {
+		return maxHeight;
 	}
 
 	private float calculateMaxHeight() {
-		if (maxHeight == null) {
-			ViewParent parent = SwipeLayout.this.getParent();
-			if (parent instanceof View) {
-				View parentView = (View) parent;
-				maxHeight = (float) parentView.getMeasuredHeight();
-				if (isButton()) {
-					maxHeight = maxHeight + minHeight;
-				}
-			}
-			else {
-				maxHeight = (float) SwipeLayout.this.getRootView().getHeight();
-			}
+		if (Float.isNaN(maxHeight)) {
+			updateMaxHeight();
 		}
 		return maxHeight;
 	}
 
-	private StopPosition getNextDownPosition(StopPosition currentPosition) {
-		StopPosition nextPosition = null;
-		int nextDistanceVal = Integer.MAX_VALUE;
-		for (StopPosition position : this.positions) {
-			int distance = position.getDistanceFromTop() - currentPosition.getDistanceFromTop();
-			if (distance <= 0)
-				continue;
-
-			if (nextPosition == null) {
-				nextPosition = position;
-				nextDistanceVal = nextPosition.getDistanceFromTop() - currentPosition.getDistanceFromTop();
-				continue;
+	/**
+	 * @return true if max height changed
+	 */
+	private boolean updateMaxHeight() {
+		float available;
+		ViewParent parent = SwipeLayout.this.getParent();
+		if (parent instanceof View) {
+			available = (float) ((View) parent).getMeasuredHeight();
+			if (isButton()) {
+				available = available + minHeight;
 			}
+		}
+		else {
+			available = (float) SwipeLayout.this.getRootView().getHeight();
+		}
+
+		if (available == maxHeight)
+			return false;
+
+		maxHeight = available;
+		invalidateMaxHeightStops();
+		return true;
+	}
 
-			if (distance < nextDistanceVal) {
-				nextPosition = position;
-				nextDistanceVal = distance;
+	/**
+	 * only stops resolved from max height ( TO_BOTTOM ) are resolved again, others keep their values
+	 */
+	private void invalidateMaxHeightStops() {
+		for (int i = 0; i < positions.size(); i++) {
+			if (positions.get(i).getType() == SwipeToPosition.TO_BOTTOM) {
+				positions.get(i).invalidate();
 			}
 		}
-		return nextPosition;
+		isStopIndexDirty = true;
 	}
 
-	private StopPosition getNextUpPosition(StopPosition currentPosition) {
-		StopPosition prevPosition = null;
-		int prevDistanceVal = -1 * Integer.MAX_VALUE;
-		for (StopPosition position : this.positions) {
-			int distance = position.getDistanceFromTop() - currentPosition.getDistanceFromTop();
-			if (distance >= 0)
-				continue;
+	/**
+	 * parent resized ( rotation, multi-window, keyboard ): max height is updated now, the settle to the
+	 * resized stop is posted since this runs inside a layout pass
+	 */
+	private void onAvailableHeightChanged() {
+		if (!updateMaxHeight() || isResettlePosted)
+			return;
 
-			if (prevPosition == null) {
-				prevPosition = position;
-				prevDistanceVal = prevPosition.getDistanceFromTop() - currentPosition.getDistanceFromTop();
-				continue;
-			}
+		isResettlePosted = true;
+		this.post(resettle);
+	}
 
-			if (Math.abs(distance) < Math.abs(prevDistanceVal)) {
-				prevPosition = position;
-				prevDistanceVal = distance;
-			}
+	/**
+	 * a panel resting at a stop settles to where the stop is now, one resting elsewhere is only kept within max height.
+	 * A running settle is retargeted the same way, a running drag resolves the new values when it's released
+	 */
+	private void settleToResizedStop() {
+		if (canBeSwipeProcessed || isTranslationDragActive || isNestedDragged)
+			return;
+
+		boolean isSettling = isSettling();
+		float height = isRenderThreadSettleActive ? this.getLayoutParams().height + contentContainer.getTranslationY() : getCurrentHeight();
+		float current = isSettling ? getSettleTarget() : height;
+		float target = stateMachine.getCurrentStop() == PanelStateMachine.NONE ? Math.min(current, maxHeight) : getStateMachine().getStopHeight(stateMachine.getCurrentStop());
+		if (current == target)
+			return;
+
+		if (isRenderThreadSettleActive) {
+			finishRenderThreadSettle(height);
+		}
+		if (metrics != null) {
+			metrics.onSettleStart(currentClosestPosition);
 		}
-		return prevPosition;
+		animate(height, target);
+	}
+
+	/**
+	 * @return height the running settle ends at
+	 */
+	private float getSettleTarget() {
+		if (isRenderThreadSettleActive)
+			return settleTargetHeight;
+		if (spring.isRunning() && !isGroupSettleActive)
+			return spring.getTarget();
+		return settleToHeight;
 	}
 
 	private void removeActionContainer() {
+		// a pooled container must not keep running the settle animation
+		if (isRenderThreadSettleActive) {
+			finishRenderThreadSettle(this.getLayoutParams().height + contentContainer.getTranslationY());
+		}
+		if (isTranslationDragActive) {
+			commitDragHeight(dragHeight);
+		}
 		this.removeView(actionContainer);
-
-		RelativeLayout.LayoutParams layoutParams = (LayoutParams) this.contentContainer.getLayoutParams();
-		layoutParams.removeRule(ABOVE);
+		if (actionContainer != null && actionContainerPool != null) {
+			actionContainer.setOnTouchListener(null);
+			actionContainer.setTranslationY(0);
+			actionContainerPool.release(actionContainerType, actionContainer);
+		}
 
 		actionContainer = null;
 	}
@@ -531,45 +2628,92 @@ public class SwipeLayout extends RelativeLayout implements View.OnTouchListener
 
 		if (!isFixed()) {
 			if (isSwipe()) {
-				actionContainer = new AppCompatImageView(this.getContext()) {
-					@Override
-					public boolean onTouchEvent(MotionEvent event) {
-						return true;
-					}
-				};
-				((AppCompatImageView) actionContainer).setImageDrawable(ContextCompat.getDrawable(getContext(), mActionButtonSrc));
+				actionContainerType = mActionButtonSrc;
+				actionContainer = actionContainerPool == null ? null : actionContainerPool.acquire(actionContainerType);
+				if (actionContainer == null) {
+					actionContainer = new ActionImageView(this.getContext());
+					((AppCompatImageView) actionContainer).setImageDrawable(ContextCompat.getDrawable(getContext(), mActionButtonSrc));
+					actionContainer.setId(View.generateViewId());
+				}
 				params = new LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, mActionButtonHeight);
-				params.addRule(RelativeLayout.ALIGN_PARENT_BOTTOM);
-				minHeight = Float.valueOf(mActionButtonHeight);
+				minHeight = mActionButtonHeight;
+				invalidateStops();
 
 			}
 			else {
-				actionContainer = new AppCompatTextView(new ContextThemeWrapper(this.getContext(), mButtonStyle), null, 0) {
-					@Override
-					public boolean onTouchEvent(MotionEvent event) {
-						return true;
-					}
-				};
+				actionContainerType = mButtonStyle;
+				actionContainer = actionContainerPool == null ? null : actionContainerPool.acquire(actionContainerType);
+				if (actionContainer == null) {
+					actionContainer = new ActionTextView(new ContextThemeWrapper(this.getContext(), mButtonStyle));
+					actionContainer.setId(View.generateViewId());
+				}
 
 				params = new LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT);
-				params.addRule(RelativeLayout.ALIGN_PARENT_BOTTOM);
+				buttonTextRes = UNSET;
 
 				int measureSpecParams = MeasureSpec.getSize(MeasureSpec.UNSPECIFIED);
 				actionContainer.measure(measureSpecParams, measureSpecParams);
 				minHeight = (float) actionContainer.getMeasuredHeight();
+				invalidateStops();
 
 				checkButtonText();
 			}
 
 			actionContainer.setLayoutParams(params);
-			actionContainer.setId(View.generateViewId());
 			actionContainer.setOnTouchListener(this);
 			this.addView(actionContainer);
+		}
+	}
 
-			params = new LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT);
-			params.addRule(RelativeLayout.ABOVE, actionContainer.getId());
-			contentContainer.setLayoutParams(params);
+	/**
+	 * true if the content container's size or its children's positions follow its height:
+	 * match_parent children, children aligned to the bottom or center and scrolling children ( also inside
+	 * wrap_content groups ), which only scroll when bounded by the visible height
+	 */
+	private boolean isContentHeightDependent() {
+		for (int i = 0; i < contentContainer.getChildCount(); i++) {
+			View child = contentContainer.getChildAt(i);
+			if (child.getVisibility() == GONE)
+				continue;
+
+			ViewGroup.LayoutParams params = child.getLayoutParams();
+			if (params.height == ViewGroup.LayoutParams.MATCH_PARENT || hasScrollingView(child))
+				return true;
+
+			if (params instanceof RelativeLayout.LayoutParams) {
+				int[] rules = ((RelativeLayout.LayoutParams) params).getRules();
+				if (rules[RelativeLayout.ALIGN_PARENT_BOTTOM] != 0 || rules[RelativeLayout.CENTER_IN_PARENT] != 0 || rules[RelativeLayout.CENTER_VERTICAL] != 0)
+					return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * the view scrolls, or a wrap_content group passes the height bound on to a scrolling view inside it
+	 */
+	private static boolean hasScrollingView(View view) {
+		if (isScrollingView(view))
+			return true;
+		if (!(view instanceof ViewGroup) || view.getLayoutParams().height != ViewGroup.LayoutParams.WRAP_CONTENT)
+			return false;
+
+		ViewGroup group = (ViewGroup) view;
+		for (int i = 0; i < group.getChildCount(); i++) {
+			View child = group.getChildAt(i);
+			if (child.getVisibility() != GONE && child.getLayoutParams() != null && hasScrollingView(child))
+				return true;
 		}
+		return false;
+	}
+
+	/**
+	 * isScrollContainer() is API 24, scrolling framework and support views are recognised by type before
+	 */
+	private static boolean isScrollingView(View view) {
+		if (view instanceof ScrollingView || view instanceof ScrollView || view instanceof AbsListView)
+			return true;
+		return Build.VERSION.SDK_INT >= Build.VERSION_CODES.N && view.isScrollContainer();
 	}
 
 	private int getPixelSize(int dp) {
@@ -578,66 +2722,186 @@ public class SwipeLayout extends RelativeLayout implements View.OnTouchListener
 
 	private void initDefaultStylingIfEmpty() {
 		if (isSwipe()) {
-			mActionButtonSrc = mActionButtonSrc == null ? R.drawable.line : mActionButtonSrc;
-			mActionButtonHeight = mActionButtonHeight == null ? getPixelSize(DEFAULT_SIZE_DP) : mActionButtonHeight;
+			mActionButtonSrc = mActionButtonSrc == UNSET ? DEFAULT_SRC : mActionButtonSrc;
+			mActionButtonHeight = mActionButtonHeight == UNSET ? getPixelSize(DEFAULT_SIZE_DP) : mActionButtonHeight;
 		}
 		else {
-			mButtonTextMore = mButtonTextMore == null ? R.string.show_more : mButtonTextMore;
-			mButtonTextLess = mButtonTextLess == null ? R.string.show_less : mButtonTextLess;
-			mButtonStyle = mButtonStyle == null ? R.style.swButtonStyle : mButtonStyle;
+			mButtonTextMore = mButtonTextMore == UNSET ? R.string.show_more : mButtonTextMore;
+			mButtonTextLess = mButtonTextLess == UNSET ? R.string.show_less : mButtonTextLess;
+			mButtonStyle = mButtonStyle == UNSET ? R.style.swButtonStyle : mButtonStyle;
 		}
 	}
 
-	private StopPosition calculateNextDirection(StopPosition closestPosition){
-		if (isButton()) {
-			StopPosition nextDownPosition = getNextDownPosition(closestPosition);
-			StopPosition nextUpPosition = getNextUpPosition(closestPosition);
-
-			if (mDirection == Direction.DOWN) {
-				StopPosition afterNextPosition = nextDownPosition == null ? null : getNextDownPosition(closestPosition);
-				closestPosition = nextDownPosition == null ? closestPosition : nextDownPosition;
-				if (afterNextPosition == null) {
-					((TextView) actionContainer).setText(mButtonTextLess);
-					mDirection = Direction.UP;
-				}
-			}
-			else {
-				StopPosition afterPrevPosition = nextUpPosition == null ? null : getNextUpPosition(closestPosition);
-				closestPosition = nextUpPosition == null ? closestPosition : nextUpPosition;
+	/**
+	 * BUTTON mode: schedules {@link #updateButtonState()}, on the next frame once laid out
+	 * ( after the first layout pass before ). Calls until it runs are coalesced
+	 */
+	private void checkButtonText() {
+		if (!isButton() || isButtonUpdatePosted)
+			return;
 
-				if (afterPrevPosition == null) {
-					((TextView) actionContainer).setText(mButtonTextMore);
-					mDirection = Direction.DOWN;
-				}
-			}
-			return closestPosition;
-		} else
-			return closestPosition;
+		isButtonUpdatePosted = true;
+		if (ViewCompat.isLaidOut(this)) {
+			ViewCompat.postOnAnimation(this, buttonUpdate);
+		}
+		else {
+			this.post(buttonUpdate);
+		}
 	}
 
-	private void checkButtonText() {
-		if (isButton()) {
-			this.post(new Runnable() {
-				@Override
-				public void run() {
-					StopPosition position = calculateClosest(SwipeLayout.this.getMeasuredHeight());
-					currentClosestPosition = position;
-					if (isDown() && getNextDownPosition(position) == null) {
-						SwipeLayout.this.mDirection = Direction.UP;
-					}
-					else if (isUp() && getNextUpPosition(position) == null) {
-						SwipeLayout.this.mDirection = Direction.DOWN;
-					}
+	/**
+	 * current stop and direction follow where the panel came to rest, label is only set if it changes
+	 */
+	private void updateButtonState() {
+		if (!isButton())
+			return;
 
-					((TextView) actionContainer).setText(SwipeLayout.this.mDirection == Direction.DOWN ? mButtonTextMore : mButtonTextLess);
-				}
-			});
+		PanelStateMachine machine = getStateMachine();
+		if (machine.getStopCount() == 0)
+			return;
+
+		if (machine.settled(this.getMeasuredHeight(), true)) {
+			currentClosestPosition = positions.get(machine.getCurrentStop());
 		}
+		setButtonText();
+	}
+
+	/**
+	 * setText can request a layout of the action container, so it's skipped when the label is already shown
+	 */
+	private void setButtonText() {
+		int textRes = stateMachine.isUp() ? mButtonTextLess : mButtonTextMore;
+		if (textRes == buttonTextRes)
+			return;
+
+		buttonTextRes = textRes;
+		((TextView) actionContainer).setText(textRes);
 	}
 
 	/*-------------------------*/
 	/*     INNER CLASSES       */
 	/*-------------------------*/
+
+	/**
+	 * action containers consume all touches, static so a pooled one doesn't keep its first layout
+	 */
+	private static class ActionImageView extends AppCompatImageView {
+
+		ActionImageView(Context context) {
+			super(context);
+		}
+
+		@Override
+		public boolean onTouchEvent(MotionEvent event) {
+			return true;
+		}
+	}
+
+	private static class ActionTextView extends AppCompatTextView {
+
+		ActionTextView(Context context) {
+			super(context, null, 0);
+		}
+
+		@Override
+		public boolean onTouchEvent(MotionEvent event) {
+			return true;
+		}
+	}
+
+	/**
+	 * Saved state: stops as type / value pairs, current stop, height and direction. Primitives only,
+	 * a few bytes per stop instead of serialized {@link StopPosition} objects
+	 */
+	static class SavedState extends BaseSavedState {
+		int[] stops;
+		int stop;
+		int height;
+		int direction;
+
+		SavedState(Parcelable superState) {
+			super(superState);
+		}
+
+		private SavedState(Parcel source) {
+			super(source);
+			stops = source.createIntArray();
+			stop = source.readInt();
+			height = source.readInt();
+			direction = source.readInt();
+		}
+
+		@Override
+		public void writeToParcel(Parcel out, int flags) {
+			super.writeToParcel(out, flags);
+			out.writeIntArray(stops);
+			out.writeInt(stop);
+			out.writeInt(height);
+			out.writeInt(direction);
+		}
+
+		public static final Parcelable.Creator<SavedState> CREATOR = new Parcelable.Creator<SavedState>() {
+			@Override
+			public SavedState createFromParcel(Parcel source) {
+				return new SavedState(source);
+			}
+
+			@Override
+			public SavedState[] newArray(int size) {
+				return new SavedState[size];
+			}
+		};
+	}
+
+	/**
+	 * Creates lazy content: must not touch views attached to a window
+	 */
+	public interface ContentFactory {
+
+		/**
+		 * called off the main thread; if it throws ( e.g. a view needs a Looper ), it's called again on the main thread
+		 */
+		View createContent(Context context);
+	}
+
+	/**
+	 * Called on the UI thread, elapsed time of {@link #onContentReady(SwipeLayout, View, long)} is mostly spent
+	 * off the main thread; compare with inflating the content up front to see the startup savings
+	 */
+	public interface OnLazyContentListener {
+
+		/**
+		 * panel started to expand before its content is ready, e.g. show a placeholder
+		 */
+		void onContentPlaceholder(SwipeLayout layout);
+
+		/**
+		 * @param content   view added to the content container
+		 * @param elapsedMs from the inflation request until the content was added
+		 */
+		void onContentReady(SwipeLayout layout, View content, long elapsedMs);
+	}
+
+	/**
+	 * Gesture diagnostics, replaces per-event logging. Called on the UI thread with primitives only,
+	 * implementations should not allocate either
+	 */
+	public interface GestureTraceListener {
+
+		/**
+		 * @param viewId    id of the view the event was dispatched to ( layout, content or action container )
+		 * @param action    {@link MotionEvent#getAction()}
+		 * @param isHandled value returned from the touch listener
+		 */
+		void onTouchTraced(SwipeLayout layout, int viewId, int action, boolean isHandled);
+
+		/**
+		 * @param action           {@link MotionEvent#getAction()}
+		 * @param canBeIntercepted true while a swipe started on the action container
+		 * @param isIntercepted    value returned from {@link SwipeLayout#onInterceptTouchEvent(MotionEvent)}
+		 */
+		void onInterceptTraced(SwipeLayout layout, int action, boolean canBeIntercepted, boolean isIntercepted);
+	}
 	public enum LayoutMode {
 		SWIPE,
 		BUTTON,
@@ -652,6 +2916,81 @@ public class SwipeLayout extends RelativeLayout implements View.OnTouchListener
 		TO_TOP // collapse view
 	}
 
+	/**
+	 * LAYOUT - height is changed through layout params on every move ( default )
+	 * TRANSLATION - the drag moves clip bounds and translation, final height is committed through layout params
+	 * when the panel settles. A drag collapsing the panel keeps its layout height, one going above it lays the panel
+	 * out at max height once. Views laid out below the panel ( LinearLayout, ConstraintLayout ) jump to the expanded
+	 * position on that move and follow a collapse only when it settles: meant for panels with nothing below them
+	 */
+	public enum DragMode {
+		LAYOUT,
+		TRANSLATION
+	}
+
+	/**
+	 * ANIMATOR - height is changed through layout params on every animation frame ( default )
+	 * RENDER_THREAD - API 21+ with hardware acceleration: translation-only settle, one layout at the end.
+	 * Despite the name the property animators run on the UI thread, it saves measure and layout per frame but
+	 * still drops frames while the main thread is busy. The panel is laid out at the larger of start and target
+	 * height for the whole settle: views laid out below it ( LinearLayout ) jump at the start of an expand and
+	 * follow a collapse only at its end. Falls back to ANIMATOR everywhere else, in a {@link SwipeLayoutGroup}
+	 * to the group's interpolated settle
+	 * SPRING - SWIPE mode fling: release velocity picks the stop, spring settles there and is retargeted
+	 * ( not restarted ) by the next settle
+	 */
+	public enum SettleMode {
+		ANIMATOR,
+		RENDER_THREAD,
+		SPRING
+	}
+
+	/**
+	 * How scrolling content ( RecyclerView, NestedScrollView ) moves the panel in SWIPE mode
+	 * NONE - only the content scrolls ( default )
+	 * PANEL_FIRST - scrolling up collapses the panel before the content scrolls, scrolling down
+	 * expands it once the content is at its top
+	 * CONTENT_FIRST - the panel only takes scroll the content can't, in both directions
+	 */
+	public enum NestedScrollMode {
+		NONE,
+		PANEL_FIRST,
+		CONTENT_FIRST
+	}
+
+	/**
+	 * NONE - content is drawn as usual while the panel moves ( default )
+	 * HARDWARE_LAYER - content container is a hardware layer while its size doesn't change: {@link DragMode#TRANSLATION}
+	 * drags, {@link SettleMode#RENDER_THREAD} settles and {@link ContentReveal#CLIP}. Other motions are drawn as NONE
+	 * SNAPSHOT - content is drawn once into a bitmap which is clipped to the revealed part while the panel moves;
+	 * content that changes meanwhile ( or follows the panel height ) isn't a fit, RENDER_THREAD settles draw live.
+	 * The bitmap is allocated on idle after a layout, a motion without it is drawn live
+	 */
+	public enum LayerPolicy {
+		NONE,
+		HARDWARE_LAYER,
+		SNAPSHOT
+	}
+
+	/**
+	 * VISIBILITY - content container is GONE at min height and VISIBLE above it ( default ). Every switch
+	 * measures and lays out the content again
+	 * CLIP - content container keeps its size and is revealed through clip bounds growing with the panel height;
+	 * it's only INVISIBLE at min height, so collapsing and expanding never measure it. Content following the
+	 * panel height is measured once at max height
+	 */
+	public enum ContentReveal {
+		VISIBILITY,
+		CLIP
+	}
+
+	private enum LazyContentState {
+		NONE,
+		PENDING,
+		INFLATING,
+		READY
+	}
+
 	private enum Direction {
 		UP,
 		DOWN
@@ -661,15 +3000,17 @@ public class SwipeLayout extends RelativeLayout implements View.OnTouchListener
 
 		private static final long serialVersionUID = -2160313128788711565L;
 		private final SwipeToPosition swipeToPosition;
-		private final Integer id;
-		private final Integer height;
+		private final int id;
+		private final int height;
 
-		Integer distanceFromTop;
+		int distanceFromTop;
 
-		private HashMap<Float, Float> cacheDistance = new HashMap<>();
-		private HashMap<Float, Float> cacheHeight = new HashMap<>();
+		/**
+		 * overrides {@link SwipeLayout#setNestedScrollMode(NestedScrollMode)} while the panel is at this stop, null if not set
+		 */
+		private NestedScrollMode nestedScrollMode;
 
-		public StopPosition(SwipeToPosition swipeToPosition, Integer value) {
+		public StopPosition(SwipeToPosition swipeToPosition, int value) {
 			this.swipeToPosition = swipeToPosition;
 			if (this.swipeToPosition == SwipeToPosition.TO_POSITION) {
 				this.height = value;
@@ -694,74 +3035,144 @@ public class SwipeLayout extends RelativeLayout implements View.OnTouchListener
 			this.height = 0;
 		}
 
-		float  calculateDistance(View globalView, float toYValue, float maxHeight, float minHeight) {
-			if (cacheDistance.get(toYValue) != null)
-				return cacheDistance.get(toYValue);
+		/**
+		 * @param value as returned by {@link #getConfigValue()}
+		 */
+		static StopPosition fromConfig(SwipeToPosition swipeToPosition, int value) {
+			if (swipeToPosition == SwipeToPosition.TO_TOP || swipeToPosition == SwipeToPosition.TO_BOTTOM)
+				return new StopPosition(swipeToPosition);
+			return new StopPosition(swipeToPosition, value);
+		}
 
-			Float distance = 0f;
+		/**
+		 * values not depending on finger position: anchor the finger is compared with, height to swipe to.
+		 * Valid for one layout generation of the layout that resolved them
+		 */
+		private transient float anchor;
+		private transient float resolvedHeight;
+		private transient int resolvedGeneration;
+
+		/**
+		 * @param targetTop    top of the TO_END_OF / TO_TOP_OF target in the layout, from the last layout pass
+		 * @param targetHeight height of that target from the last layout pass
+		 * @return true if values of this generation were already resolved
+		 */
+		boolean resolve(float maxHeight, float minHeight, float targetTop, int targetHeight, int generation) {
+			if (generation != 0 && generation == resolvedGeneration)
+				return true;
 
 			switch (swipeToPosition) {
 				case TO_BOTTOM:
-					distance = maxHeight - toYValue;
-					cacheHeight.put(toYValue, maxHeight);
+					anchor = maxHeight;
+					resolvedHeight = maxHeight;
 					distanceFromTop = (int) (maxHeight);
 					break;
 				case TO_TOP:
-					distance = minHeight - toYValue;
-					cacheHeight.put(toYValue, minHeight);
+					anchor = minHeight;
+					resolvedHeight = minHeight;
 					distanceFromTop = 0;
 					break;
 				case TO_POSITION:
-					distance = this.height - toYValue;
-					cacheHeight.put(toYValue, Float.valueOf(this.height));
+					anchor = this.height;
+					resolvedHeight = this.height;
 					distanceFromTop = this.height;
 					break;
 				case TO_END_OF:
-					View viewToEnd = globalView.findViewById(id);
-
-					int measureSpecParams = View.MeasureSpec.getSize(View.MeasureSpec.UNSPECIFIED);
-					viewToEnd.measure(measureSpecParams, measureSpecParams);
-					int measuredHeight = viewToEnd.getMeasuredHeight();
-
-					float topEndVal = calculateTop(globalView, viewToEnd);
-					distance = topEndVal  + measuredHeight - toYValue;
-					cacheHeight.put(toYValue, topEndVal  + minHeight + measuredHeight);
-
-					distanceFromTop = (int) (topEndVal + minHeight + measuredHeight);
+					anchor = targetTop + targetHeight;
+					resolvedHeight = targetTop + minHeight + targetHeight;
+					distanceFromTop = (int) (targetTop + minHeight + targetHeight);
 					break;
 				case TO_TOP_OF:
-					View viewToTop = globalView.findViewById(id);
-					float topVal = calculateTop(globalView, viewToTop);
-					distance = topVal - toYValue;
-					cacheHeight.put(toYValue, topVal + minHeight);
-
-					distanceFromTop = (int) (topVal + minHeight);
+					anchor = targetTop;
+					resolvedHeight = targetTop + minHeight;
+					distanceFromTop = (int) (targetTop + minHeight);
 					break;
 			}
+			resolvedGeneration = generation;
+			return false;
+		}
+
+		/**
+		 * resolved values are computed again on the next resolve, whatever the generation
+		 */
+		void invalidate() {
+			resolvedGeneration = 0;
+		}
 
+		float getDistance(float toYValue) {
+			return anchor - toYValue;
+		}
 
-			cacheDistance.put(toYValue, distance);
-			return distance;
+		float getAnchor() {
+			return anchor;
 		}
 
-		Float getDistance(float toYValue) {
-			return cacheDistance.get(toYValue);
+		float getResolvedHeight() {
+			return resolvedHeight;
 		}
 
-		Float getHeight(float toYValue) {
-			return cacheHeight.get(toYValue);
+		/**
+		 * @return id of the view TO_END_OF / TO_TOP_OF refers to, {@link View#NO_ID} for other types
+		 */
+		int getTargetId() {
+			return id;
 		}
 
-		Integer getDistanceFromTop() {
+		int getDistanceFromTop() {
 			return distanceFromTop;
 		}
 
-		Float calculateTop(View viewGlobal, View viewParent) {
-			Float add = 0f;
-			if (viewParent != viewGlobal) {
-				add = calculateTop(viewGlobal, (View) viewParent.getParent());
+		/**
+		 * @param nestedScrollMode how scrolling content moves the panel while it is at this stop, null for the layout's mode
+		 * @return this stop
+		 */
+		public StopPosition setNestedScrollMode(NestedScrollMode nestedScrollMode) {
+			this.nestedScrollMode = nestedScrollMode;
+			return this;
+		}
+
+		public NestedScrollMode getNestedScrollMode() {
+			return nestedScrollMode;
+		}
+
+		SwipeToPosition getType() {
+			return swipeToPosition;
+		}
+
+		/**
+		 * stops are equal if they have the same type, value and nested scroll override, resolved values don't count
+		 */
+		@Override
+		public boolean equals(Object o) {
+			if (this == o)
+				return true;
+			if (!(o instanceof StopPosition))
+				return false;
+
+			StopPosition that = (StopPosition) o;
+			return swipeToPosition == that.swipeToPosition && getConfigValue() == that.getConfigValue()
+					&& nestedScrollMode == that.nestedScrollMode;
+		}
+
+		@Override
+		public int hashCode() {
+			int result = 31 * swipeToPosition.hashCode() + getConfigValue();
+			return 31 * result + (nestedScrollMode == null ? 0 : nestedScrollMode.hashCode());
+		}
+
+		/**
+		 * @return value given to the constructor: px for TO_POSITION, view id for TO_END_OF / TO_TOP_OF, 0 otherwise
+		 */
+		int getConfigValue() {
+			switch (swipeToPosition) {
+				case TO_POSITION:
+					return height;
+				case TO_END_OF:
+				case TO_TOP_OF:
+					return id;
+				default:
+					return 0;
 			}
-			return viewParent.getY() + add;
 		}
 	}
 
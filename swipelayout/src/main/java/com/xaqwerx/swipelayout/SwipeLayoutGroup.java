@@ -0,0 +1,165 @@
+package com.xaqwerx.swipelayout;
+
+import android.view.Choreographer;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+
+/**
+ * Coordinates {@link SwipeLayout}s of one screen ( e.g. an accordion ). Settles of all members run from one
+ * frame callback, every member gets its height for the frame before the single layout pass that follows.
+ * Transitions caused by the {@link ExpandPolicy} start in the same frame as the settle that caused them.
+ * Members are held weakly, a group outliving its screen doesn't keep the layouts; only settling ones are held
+ * until they stop. Settles of members run as SPRING or as the ANIMATOR interpolation, RENDER_THREAD members
+ * are laid out every frame like ANIMATOR ones while in a group.
+ */
+public class SwipeLayoutGroup {
+
+	/**
+	 * ANY - members expand and collapse independently ( default )
+	 * SINGLE - a member settling above its lowest stop collapses all other expanded members
+	 */
+	public enum ExpandPolicy {
+		ANY,
+		SINGLE
+	}
+
+	private final ArrayList<WeakReference<SwipeLayout>> members = new ArrayList<>();
+	private final ArrayList<SwipeLayout> settling = new ArrayList<>();
+	private final ArrayList<SwipeLayout> settled = new ArrayList<>();
+	private ExpandPolicy expandPolicy;
+	private boolean isFramePosted;
+
+	private final Choreographer.FrameCallback frameCallback = new Choreographer.FrameCallback() {
+		@Override
+		public void doFrame(long frameTimeNanos) {
+			isFramePosted = false;
+
+			for (int i = 0; i < settling.size(); i++) {
+				SwipeLayout member = settling.get(i);
+				if (!member.onGroupFrame(frameTimeNanos)) {
+					settled.add(member);
+				}
+			}
+
+			// end callbacks may start new settles, so members are removed first
+			for (int i = 0; i < settled.size(); i++) {
+				settling.remove(settled.get(i));
+			}
+			for (int i = 0; i < settled.size(); i++) {
+				settled.get(i).onGroupSettleEnd();
+			}
+			settled.clear();
+
+			postFrame();
+		}
+	};
+
+	public SwipeLayoutGroup() {
+		this(ExpandPolicy.ANY);
+	}
+
+	public SwipeLayoutGroup(ExpandPolicy expandPolicy) {
+		this.expandPolicy = expandPolicy;
+	}
+
+	/**
+	 * settles of the layout are driven by this group from now on, a running one is stopped where it is
+	 */
+	public void add(SwipeLayout layout) {
+		if (indexOf(layout) >= 0)
+			return;
+
+		layout.setGroup(this);
+		members.add(new WeakReference<>(layout));
+	}
+
+	public void remove(SwipeLayout layout) {
+		int index = indexOf(layout);
+		if (index < 0)
+			return;
+
+		members.remove(index);
+		layout.setGroup(null);
+		settling.remove(layout);
+	}
+
+	public ExpandPolicy getExpandPolicy() {
+		return expandPolicy;
+	}
+
+	public void setExpandPolicy(ExpandPolicy expandPolicy) {
+		this.expandPolicy = expandPolicy;
+	}
+
+	/**
+	 * settles all expanded members to their lowest stop, in one batch
+	 */
+	public void collapseAll() {
+		for (int i = members.size() - 1; i >= 0; i--) {
+			collapse(i);
+		}
+	}
+
+	/**
+	 * called by a member starting its settle
+	 */
+	void onSettleStart(SwipeLayout layout) {
+		if (!settling.contains(layout)) {
+			settling.add(layout);
+		}
+
+		if (expandPolicy == ExpandPolicy.SINGLE && layout.isGroupSettleExpanding()) {
+			for (int i = members.size() - 1; i >= 0; i--) {
+				if (members.get(i).get() != layout) {
+					collapse(i);
+				}
+			}
+		}
+		postFrame();
+	}
+
+	/**
+	 * called by a member whose settle was interrupted ( finger down, rebind, detach )
+	 */
+	void onSettleStopped(SwipeLayout layout) {
+		settling.remove(layout);
+	}
+
+	/**
+	 * collapses the member at the index, drops it if it was collected
+	 */
+	private void collapse(int index) {
+		SwipeLayout member = members.get(index).get();
+		if (member == null) {
+			members.remove(index);
+		}
+		else if (member.isExpanded()) {
+			member.collapseInGroup();
+		}
+	}
+
+	/**
+	 * @return index of the member, -1 if not in the group; collected members are dropped on the way
+	 */
+	private int indexOf(SwipeLayout layout) {
+		for (int i = members.size() - 1; i >= 0; i--) {
+			SwipeLayout member = members.get(i).get();
+			if (member == null) {
+				members.remove(i);
+			}
+			else if (member == layout) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private void postFrame() {
+		if (isFramePosted || settling.isEmpty())
+			return;
+
+		isFramePosted = true;
+		Choreographer.getInstance().postFrameCallback(frameCallback);
+	}
+}
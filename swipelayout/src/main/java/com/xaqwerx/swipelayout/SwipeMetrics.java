@@ -0,0 +1,322 @@
+package com.xaqwerx.swipelayout;
+
+import android.os.SystemClock;
+import android.view.Choreographer;
+
+import java.util.Arrays;
+
+/**
+ * Per-gesture performance stats of one {@link SwipeLayout} ( drag or click and the settle that follows ),
+ * aggregated into fixed-bucket histograms. Created by {@link SwipeLayout#setOnMetricsListener(OnMetricsListener)},
+ * nothing is tracked while no listener is set.
+ */
+public class SwipeMetrics {
+
+	/**
+	 * frame interval is over budget when a whole vsync was missed
+	 */
+	private static final float OVER_BUDGET_FACTOR = 1.5f;
+
+	public interface OnMetricsListener {
+
+		/**
+		 * Called on the UI thread when a gesture ends. Stats object is reused, copy values to keep them
+		 */
+		void onGestureMetrics(SwipeLayout layout, GestureStats stats);
+	}
+
+	public static final class GestureStats {
+		private long gestureDurationMs;
+		private long settleDurationMs;
+		private int layoutPasses;
+		private int frames;
+		private int framesOverBudget;
+		private int visibilityToggles;
+		private SwipeLayout.StopPosition settleTarget;
+		private SwipeLayout.LayerPolicy layerPolicy;
+
+		/**
+		 * from the first move of the panel ( or the start of a settle without drag, e.g. a click or
+		 * {@link SwipeLayout#swipeTo(SwipeLayout.StopPosition)} ) until the panel settled
+		 */
+		public long getGestureDurationMs() {
+			return gestureDurationMs;
+		}
+
+		/**
+		 * 0 if gesture ended without settle animation
+		 */
+		public long getSettleDurationMs() {
+			return settleDurationMs;
+		}
+
+		public int getLayoutPasses() {
+			return layoutPasses;
+		}
+
+		public int getFrames() {
+			return frames;
+		}
+
+		public int getFramesOverBudget() {
+			return framesOverBudget;
+		}
+
+		/**
+		 * times content container switched between GONE and VISIBLE
+		 */
+		public int getVisibilityToggles() {
+			return visibilityToggles;
+		}
+
+		/**
+		 * null if gesture ended without settle animation
+		 */
+		public SwipeLayout.StopPosition getSettleTarget() {
+			return settleTarget;
+		}
+
+		/**
+		 * layer policy the gesture started with
+		 */
+		public SwipeLayout.LayerPolicy getLayerPolicy() {
+			return layerPolicy;
+		}
+
+		private void reset() {
+			gestureDurationMs = 0;
+			settleDurationMs = 0;
+			layoutPasses = 0;
+			frames = 0;
+			framesOverBudget = 0;
+			visibilityToggles = 0;
+			settleTarget = null;
+			layerPolicy = null;
+		}
+	}
+
+	/**
+	 * Bucket i counts values <= bound i ( and above previous bound ), last bucket counts values above all bounds
+	 */
+	public static final class Histogram {
+		private final long[] bounds;
+		private final int[] counts;
+		private long sum;
+		private int total;
+
+		Histogram(long... bounds) {
+			this.bounds = bounds;
+			this.counts = new int[bounds.length + 1];
+		}
+
+		void record(long value) {
+			int bucket = 0;
+			while (bucket < bounds.length && value > bounds[bucket]) {
+				bucket++;
+			}
+			counts[bucket]++;
+			sum += value;
+			total++;
+		}
+
+		public long[] getBucketBounds() {
+			return Arrays.copyOf(bounds, bounds.length);
+		}
+
+		public int[] getCounts() {
+			return Arrays.copyOf(counts, counts.length);
+		}
+
+		public int getTotal() {
+			return total;
+		}
+
+		public double getMean() {
+			return total == 0 ? 0 : (double) sum / total;
+		}
+
+		void clear() {
+			Arrays.fill(counts, 0);
+			sum = 0;
+			total = 0;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder builder = new StringBuilder();
+			for (int i = 0; i < counts.length; i++) {
+				builder.append(i < bounds.length ? "<=" + bounds[i] : ">" + bounds[bounds.length - 1])
+						.append(": ")
+						.append(counts[i])
+						.append(i < counts.length - 1 ? ", " : "");
+			}
+			return builder.toString();
+		}
+	}
+
+	private final Histogram gestureDuration = new Histogram(50, 100, 200, 300, 500, 750, 1000, 2000, 5000);
+	private final Histogram settleDuration = new Histogram(100, 200, 300, 400, 600, 1000, 2000);
+	private final Histogram layoutPasses = new Histogram(0, 1, 2, 5, 10, 20, 50, 100, 200);
+	private final Histogram framesOverBudget = new Histogram(0, 1, 2, 3, 5, 10, 20);
+	private final Histogram visibilityToggles = new Histogram(0, 1, 2, 4, 8);
+
+	/**
+	 * frames and frames over budget of all gestures, by layer policy they ran with
+	 */
+	private final long[] policyFrames = new long[SwipeLayout.LayerPolicy.values().length];
+	private final long[] policyFramesOverBudget = new long[SwipeLayout.LayerPolicy.values().length];
+
+	private final SwipeLayout layout;
+	private final OnMetricsListener listener;
+	private final GestureStats stats = new GestureStats();
+	private final long frameBudgetNanos;
+
+	private boolean isTracking;
+	private long gestureStartMs;
+	private long settleStartMs;
+	private long lastFrameNanos;
+
+	private final Choreographer.FrameCallback frameCallback = new Choreographer.FrameCallback() {
+		@Override
+		public void doFrame(long frameTimeNanos) {
+			if (!isTracking)
+				return;
+
+			if (lastFrameNanos != 0 && frameTimeNanos - lastFrameNanos > frameBudgetNanos * OVER_BUDGET_FACTOR) {
+				stats.framesOverBudget++;
+			}
+			lastFrameNanos = frameTimeNanos;
+			stats.frames++;
+			Choreographer.getInstance().postFrameCallback(this);
+		}
+	};
+
+	SwipeMetrics(SwipeLayout layout, OnMetricsListener listener, float refreshRate) {
+		this.layout = layout;
+		this.listener = listener;
+		this.frameBudgetNanos = (long) (1000000000 / (refreshRate > 0 ? refreshRate : 60f));
+	}
+
+	public Histogram getGestureDurationHistogram() {
+		return gestureDuration;
+	}
+
+	public Histogram getSettleDurationHistogram() {
+		return settleDuration;
+	}
+
+	public Histogram getLayoutPassesHistogram() {
+		return layoutPasses;
+	}
+
+	public Histogram getFramesOverBudgetHistogram() {
+		return framesOverBudget;
+	}
+
+	public Histogram getVisibilityTogglesHistogram() {
+		return visibilityToggles;
+	}
+
+	/**
+	 * Share of frames over budget in gestures run with the policy, compare policies to see if a layer helps
+	 *
+	 * @return NaN if no frames were recorded with the policy
+	 */
+	public float getOverBudgetRatio(SwipeLayout.LayerPolicy policy) {
+		long frames = policyFrames[policy.ordinal()];
+		return frames == 0 ? Float.NaN : (float) policyFramesOverBudget[policy.ordinal()] / frames;
+	}
+
+	public void clear() {
+		Arrays.fill(policyFrames, 0);
+		Arrays.fill(policyFramesOverBudget, 0);
+		gestureDuration.clear();
+		settleDuration.clear();
+		layoutPasses.clear();
+		framesOverBudget.clear();
+		visibilityToggles.clear();
+	}
+
+	/**
+	 * starts a gesture, a gesture still running ( e.g. interrupted settle ) is reported first
+	 */
+	void onGestureStart() {
+		if (isTracking) {
+			onGestureEnd();
+		}
+		stats.reset();
+		stats.layerPolicy = layout.getLayerPolicy();
+		isTracking = true;
+		gestureStartMs = SystemClock.uptimeMillis();
+		settleStartMs = 0;
+		lastFrameNanos = 0;
+		Choreographer.getInstance().postFrameCallback(frameCallback);
+	}
+
+	/**
+	 * first move of a drag starts the gesture, later moves belong to it
+	 */
+	void onMotionStart() {
+		if (!isTracking) {
+			onGestureStart();
+		}
+	}
+
+	/**
+	 * settle without drag starts its own gesture
+	 */
+	void onSettleStart(SwipeLayout.StopPosition target) {
+		if (!isTracking) {
+			onGestureStart();
+		}
+		stats.settleTarget = target;
+		settleStartMs = SystemClock.uptimeMillis();
+	}
+
+	void onLayoutPass() {
+		if (isTracking) {
+			stats.layoutPasses++;
+		}
+	}
+
+	void onVisibilityToggle() {
+		if (isTracking) {
+			stats.visibilityToggles++;
+		}
+	}
+
+	/**
+	 * drops a running gesture without reporting it, e.g. when the listener is replaced
+	 */
+	void stop() {
+		if (!isTracking)
+			return;
+
+		isTracking = false;
+		Choreographer.getInstance().removeFrameCallback(frameCallback);
+	}
+
+	void onGestureEnd() {
+		if (!isTracking)
+			return;
+
+		isTracking = false;
+		Choreographer.getInstance().removeFrameCallback(frameCallback);
+
+		long now = SystemClock.uptimeMillis();
+		stats.gestureDurationMs = now - gestureStartMs;
+		stats.settleDurationMs = settleStartMs == 0 ? 0 : now - settleStartMs;
+
+		gestureDuration.record(stats.gestureDurationMs);
+		if (settleStartMs != 0) {
+			settleDuration.record(stats.settleDurationMs);
+		}
+		layoutPasses.record(stats.layoutPasses);
+		framesOverBudget.record(stats.framesOverBudget);
+		visibilityToggles.record(stats.visibilityToggles);
+		policyFrames[stats.layerPolicy.ordinal()] += stats.frames;
+		policyFramesOverBudget[stats.layerPolicy.ordinal()] += stats.framesOverBudget;
+
+		listener.onGestureMetrics(layout, stats);
+	}
+}
@@ -0,0 +1,54 @@
+package com.xaqwerx.swipelayout;
+
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.view.View;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+/**
+ * Pool provided by the Context is used from the constructor on
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class ActionContainerPoolTest {
+
+	@Test
+	public void newLayout_takesContainerFromContextPool() throws Exception {
+		OwnerContext context = new OwnerContext(RuntimeEnvironment.application);
+		SwipeLayout released = new SwipeLayout(context);
+		View container = released.getActionContainer();
+		released.setMode(SwipeLayout.LayoutMode.BUTTON);
+
+		SwipeLayout created = new SwipeLayout(context);
+
+		assertSame(container, created.getActionContainer());
+		assertSame(created, container.getParent());
+	}
+
+	@Test
+	public void contextWithoutOwner_hasNoPool() throws Exception {
+		assertNull(ActionContainerPool.from(new ContextWrapper(RuntimeEnvironment.application)));
+		assertNotNull(ActionContainerPool.from(new ContextWrapper(new OwnerContext(RuntimeEnvironment.application))));
+	}
+
+	private static class OwnerContext extends ContextWrapper implements ActionContainerPool.Owner {
+
+		private final ActionContainerPool pool = new ActionContainerPool();
+
+		OwnerContext(Context base) {
+			super(base);
+		}
+
+		@Override
+		public ActionContainerPool getActionContainerPool() {
+			return pool;
+		}
+	}
+}
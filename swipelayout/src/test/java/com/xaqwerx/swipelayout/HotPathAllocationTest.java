@@ -0,0 +1,117 @@
+package com.xaqwerx.swipelayout;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * Steady state of the plain java hot path ( stop lookups, gesture decisions, spring steps ) must not allocate.
+ * Measured with per-thread allocation counters of the JVM, the budget covers the measuring itself.
+ * View code is left out: Robolectric shadows of setLayoutParams / requestLayout allocate on their own
+ */
+public class HotPathAllocationTest {
+
+	private static final int STOP_COUNT = 50;
+	private static final int WARM_UP = 20000;
+	private static final int ITERATIONS = 200000;
+	private static final float MAX_HEIGHT = 2000f;
+
+	/**
+	 * measured baseline is 0 bytes, the rest is room for one-off allocations of the JVM itself.
+	 * A single boxed value per iteration would be MBs
+	 */
+	private static final long MAX_ALLOCATED_BYTES = 256;
+
+	private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	private final PanelStateMachine machine = new PanelStateMachine();
+	private final PanelSpring spring = new PanelSpring();
+
+	private int sink;
+
+	@Before
+	public void setUp() throws Exception {
+		machine.resetStops(STOP_COUNT);
+		for (int i = 0; i < STOP_COUNT; i++) {
+			float height = (i * 37) % MAX_HEIGHT;
+			machine.addStop(height, (int) height, height);
+		}
+	}
+
+	@Test
+	public void stopLookups_doNotAllocate() throws Exception {
+		for (int i = 0; i < WARM_UP; i++) {
+			lookup(i);
+		}
+
+		long before = allocatedBytes();
+		for (int i = 0; i < ITERATIONS; i++) {
+			lookup(i);
+		}
+		assertAllocatedAtMost(allocatedBytes() - before);
+	}
+
+	@Test
+	public void gestures_doNotAllocate() throws Exception {
+		for (int i = 0; i < WARM_UP; i++) {
+			gesture(i);
+		}
+
+		long before = allocatedBytes();
+		for (int i = 0; i < ITERATIONS; i++) {
+			gesture(i);
+		}
+		assertAllocatedAtMost(allocatedBytes() - before);
+	}
+
+	@Test
+	public void springSteps_doNotAllocate() throws Exception {
+		for (int i = 0; i < WARM_UP; i++) {
+			springStep(i);
+		}
+
+		long before = allocatedBytes();
+		for (int i = 0; i < ITERATIONS; i++) {
+			springStep(i);
+		}
+		assertAllocatedAtMost(allocatedBytes() - before);
+	}
+
+	private void lookup(int iteration) {
+		int stop = machine.closest((iteration * 7) % MAX_HEIGHT);
+		sink += machine.nextDown(stop) + machine.nextUp(stop);
+	}
+
+	private void gesture(int iteration) {
+		float value = (iteration * 7) % MAX_HEIGHT;
+		switch (iteration % 3) {
+			case 0:
+				sink += machine.release(value);
+				break;
+			case 1:
+				sink += machine.click(value);
+				break;
+			default:
+				sink += machine.settled(value, true) ? 1 : 0;
+		}
+	}
+
+	private void springStep(int iteration) {
+		if (!spring.isRunning()) {
+			spring.start(0, 3000f, PanelSpring.projectFling(0, 3000f) % MAX_HEIGHT);
+		}
+		spring.step(0.016f);
+		sink += (int) spring.getPosition();
+	}
+
+	private static void assertAllocatedAtMost(long allocated) {
+		assertTrue("Hot path allocated " + allocated + " bytes in " + ITERATIONS + " iterations", allocated <= MAX_ALLOCATED_BYTES);
+	}
+
+	private static long allocatedBytes() {
+		return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+}
@@ -0,0 +1,157 @@
+package com.xaqwerx.swipelayout;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link PanelStateMachine} gestures compared with the logic SwipeLayout ran on its own before
+ */
+public class PanelStateMachineTest {
+
+	@Test
+	public void buttonClicks_walkStopsAndTurn() throws Exception {
+		PanelStateMachine machine = new PanelStateMachine();
+		machine.resetStops(3);
+		machine.addStop(100f, 100, 100f);
+		machine.addStop(300f, 300, 300f);
+		machine.addStop(200f, 200, 200f);
+
+		assertEquals(2, machine.click(100f));
+		assertFalse(machine.isUp());
+		assertEquals(1, machine.click(200f));
+		assertFalse(machine.isUp());
+
+		// no stop further down: stays, turns up
+		assertEquals(1, machine.click(300f));
+		assertTrue(machine.isUp());
+		assertEquals(2, machine.click(300f));
+		assertEquals(0, machine.click(200f));
+	}
+
+	@Test
+	public void settled_turnsDirectionAtLastStop() throws Exception {
+		PanelStateMachine machine = new PanelStateMachine();
+		machine.resetStops(2);
+		machine.addStop(100f, 100, 100f);
+		machine.addStop(300f, 300, 300f);
+
+		assertTrue(machine.settled(290f, true));
+		assertEquals(1, machine.getCurrentStop());
+		assertTrue(machine.isUp());
+		assertFalse(machine.settled(300f, true));
+
+		assertTrue(machine.settled(110f, false));
+		assertTrue(machine.isUp());
+	}
+
+	@Test
+	public void noStops_keepsCurrentStop() throws Exception {
+		PanelStateMachine machine = new PanelStateMachine();
+		machine.resetStops(0);
+		machine.setCurrentStop(3);
+
+		assertEquals(PanelStateMachine.NONE, machine.release(10f));
+		assertEquals(PanelStateMachine.NONE, machine.click(10f));
+		assertFalse(machine.settled(10f, true));
+		assertEquals(3, machine.getCurrentStop());
+	}
+
+	@Test
+	public void randomGestures_matchFormerLayoutLogic() throws Exception {
+		Random random = new Random(7);
+		PanelStateMachine machine = new PanelStateMachine();
+
+		for (int run = 0; run < 200; run++) {
+			int count = 1 + random.nextInt(12);
+			float[] anchors = new float[count];
+			int[] tops = new int[count];
+			machine.resetStops(count);
+			for (int i = 0; i < count; i++) {
+				// few distinct values, so equal stops are common
+				anchors[i] = random.nextInt(20) * 50f;
+				tops[i] = random.nextInt(20) * 50;
+				machine.addStop(anchors[i], tops[i], anchors[i]);
+			}
+
+			boolean isUp = false;
+			machine.setUp(false);
+			for (int gesture = 0; gesture < 100; gesture++) {
+				float value = random.nextFloat() * 1100f - 50f;
+				if (random.nextBoolean()) {
+					// former calculateNextDirection( calculateClosest() )
+					int stop = scanClosest(anchors, value);
+					int next = isUp ? scanNextUp(tops, tops[stop]) : scanNextDown(tops, tops[stop]);
+					if (next == PanelStateMachine.NONE) {
+						isUp = !isUp;
+					}
+					else {
+						stop = next;
+					}
+					assertEquals(stop, machine.click(value));
+				}
+				else {
+					// former checkButtonText
+					int stop = scanClosest(anchors, value);
+					if (!isUp && scanNextDown(tops, tops[stop]) == PanelStateMachine.NONE) {
+						isUp = true;
+					}
+					else if (isUp && scanNextUp(tops, tops[stop]) == PanelStateMachine.NONE) {
+						isUp = false;
+					}
+					machine.settled(value, true);
+					assertEquals(stop, machine.getCurrentStop());
+				}
+				assertEquals(isUp, machine.isUp());
+			}
+		}
+	}
+
+	/* same logic as the former SwipeLayout.calculateClosest */
+	private static int scanClosest(float[] anchors, float value) {
+		int closest = PanelStateMachine.NONE;
+		for (int i = 0; i < anchors.length; i++) {
+			if (closest == PanelStateMachine.NONE) {
+				closest = i;
+			}
+			if (Math.abs(anchors[closest] - value) > Math.abs(anchors[i] - value)) {
+				closest = i;
+			}
+		}
+		return closest;
+	}
+
+	/* same logic as the former SwipeLayout.getNextDownPosition */
+	private static int scanNextDown(int[] tops, int current) {
+		int next = PanelStateMachine.NONE;
+		int nextDistance = Integer.MAX_VALUE;
+		for (int i = 0; i < tops.length; i++) {
+			int distance = tops[i] - current;
+			if (distance <= 0)
+				continue;
+			if (next == PanelStateMachine.NONE || distance < nextDistance) {
+				next = i;
+				nextDistance = distance;
+			}
+		}
+		return next;
+	}
+
+	/* same logic as the former SwipeLayout.getNextUpPosition */
+	private static int scanNextUp(int[] tops, int current) {
+		int prev = PanelStateMachine.NONE;
+		int prevDistance = -1 * Integer.MAX_VALUE;
+		for (int i = 0; i < tops.length; i++) {
+			int distance = tops[i] - current;
+			if (distance >= 0)
+				continue;
+			if (prev == PanelStateMachine.NONE || Math.abs(distance) < Math.abs(prevDistance)) {
+				prev = i;
+				prevDistance = distance;
+			}
+		}
+		return prev;
+	}
+}
@@ -0,0 +1,132 @@
+package com.xaqwerx.swipelayout;
+
+import android.view.View;
+import android.widget.FrameLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+/**
+ * Stops committed by {@link PositionsEditor} are validated, de-duplicated and sorted, read back through saved state
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class PositionsEditorTest {
+
+	private FrameLayout parent;
+	private SwipeLayout layout;
+
+	@Before
+	public void setUp() throws Exception {
+		parent = new FrameLayout(RuntimeEnvironment.application);
+		layout = new SwipeLayout(RuntimeEnvironment.application);
+		parent.addView(layout, new FrameLayout.LayoutParams(FrameLayout.LayoutParams.MATCH_PARENT, 200));
+		layoutParent();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void nullStop_isRejected() throws Exception {
+		layout.editPositions().add(null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void negativePosition_isRejected() throws Exception {
+		layout.editPositions().add(position(-10));
+	}
+
+	@Test
+	public void commit_sortsByType() throws Exception {
+		layout.editPositions()
+				.add(new SwipeLayout.StopPosition(SwipeLayout.SwipeToPosition.TO_BOTTOM))
+				.add(position(300))
+				.add(new SwipeLayout.StopPosition(SwipeLayout.SwipeToPosition.TO_TOP))
+				.add(position(100))
+				.commit();
+
+		assertArrayEquals(new int[]{
+				SwipeLayout.SwipeToPosition.TO_TOP.ordinal(), 0,
+				SwipeLayout.SwipeToPosition.TO_POSITION.ordinal(), 100,
+				SwipeLayout.SwipeToPosition.TO_POSITION.ordinal(), 300,
+				SwipeLayout.SwipeToPosition.TO_BOTTOM.ordinal(), 0
+		}, savedStops());
+	}
+
+	@Test
+	public void commit_dropsEqualStops_keepsOverrides() throws Exception {
+		layout.editPositions()
+				.add(position(100))
+				.add(position(200))
+				.add(position(100))
+				.add(position(100).setNestedScrollMode(SwipeLayout.NestedScrollMode.PANEL_FIRST))
+				.add(position(100))
+				.commit();
+
+		assertEquals(3, savedStops().length / 2);
+	}
+
+	@Test
+	public void remove_dropsEveryEqualStop() throws Exception {
+		layout.editPositions().add(position(100)).add(position(100)).add(position(200)).commit();
+		layout.editPositions().remove(position(100)).commit();
+
+		assertArrayEquals(new int[]{SwipeLayout.SwipeToPosition.TO_POSITION.ordinal(), 200}, savedStops());
+	}
+
+	@Test
+	public void removedCurrentStop_settlesToNearest() throws Exception {
+		bindAtStop(2, 320);
+
+		layout.editPositions().remove(position(320)).settleToNearest(true).commit();
+
+		SwipeLayout.SavedState state = (SwipeLayout.SavedState) layout.onSaveInstanceState();
+		assertEquals(1, state.stop);
+		assertEquals(200, state.height);
+	}
+
+	@Test
+	public void removedCurrentStop_staysWithoutSettleToNearest() throws Exception {
+		bindAtStop(2, 320);
+
+		layout.editPositions().remove(position(320)).commit();
+
+		SwipeLayout.SavedState state = (SwipeLayout.SavedState) layout.onSaveInstanceState();
+		assertEquals(PanelStateMachine.NONE, state.stop);
+		assertEquals(320, state.height);
+	}
+
+	/**
+	 * stops TO_TOP, 200, 320, TO_BOTTOM, panel at the given one
+	 */
+	private void bindAtStop(int stop, int height) {
+		layout.editPositions()
+				.add(new SwipeLayout.StopPosition(SwipeLayout.SwipeToPosition.TO_TOP))
+				.add(position(200))
+				.add(position(320))
+				.add(new SwipeLayout.StopPosition(SwipeLayout.SwipeToPosition.TO_BOTTOM))
+				.commit();
+
+		PanelStateStore store = new PanelStateStore();
+		store.put(1, ((long) height << 32) | (stop << 1));
+		layout.bindState(1, store);
+		layoutParent();
+	}
+
+	private int[] savedStops() {
+		return ((SwipeLayout.SavedState) layout.onSaveInstanceState()).stops;
+	}
+
+	private static SwipeLayout.StopPosition position(int px) {
+		return new SwipeLayout.StopPosition(SwipeLayout.SwipeToPosition.TO_POSITION, px);
+	}
+
+	private void layoutParent() {
+		parent.measure(View.MeasureSpec.makeMeasureSpec(400, View.MeasureSpec.EXACTLY), View.MeasureSpec.makeMeasureSpec(1000, View.MeasureSpec.EXACTLY));
+		parent.layout(0, 0, 400, 1000);
+	}
+}
@@ -0,0 +1,118 @@
+package com.xaqwerx.swipelayout;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link StopIndex} lookups compared with the linear scans SwipeLayout used before
+ */
+public class StopIndexTest {
+
+	@Test
+	public void emptyIndex_returnsNone() throws Exception {
+		StopIndex index = new StopIndex();
+		index.reset(0);
+
+		assertEquals(StopIndex.NONE, index.closest(10f));
+		assertEquals(StopIndex.NONE, index.nextDown(10));
+		assertEquals(StopIndex.NONE, index.nextUp(10));
+	}
+
+	@Test
+	public void equalDistance_firstInListWins() throws Exception {
+		StopIndex index = new StopIndex();
+		index.reset(4);
+		index.add(300f, 300, 300f);
+		index.add(100f, 100, 100f);
+		index.add(100f, 100, 100f);
+		index.add(300f, 300, 300f);
+
+		assertEquals(0, index.closest(200f));
+		assertEquals(1, index.closest(0f));
+		assertEquals(0, index.closest(500f));
+		assertEquals(0, index.nextDown(100));
+		assertEquals(1, index.nextUp(300));
+	}
+
+	@Test
+	public void randomStops_matchLinearScan() throws Exception {
+		Random random = new Random(42);
+		StopIndex index = new StopIndex();
+
+		for (int run = 0; run < 500; run++) {
+			int count = 1 + random.nextInt(40);
+			float[] anchors = new float[count];
+			int[] tops = new int[count];
+
+			index.reset(count);
+			for (int i = 0; i < count; i++) {
+				// few distinct values, so equal stops are common
+				anchors[i] = random.nextInt(30) * 20f;
+				tops[i] = random.nextInt(30) * 20;
+				index.add(anchors[i], tops[i], tops[i]);
+			}
+
+			for (int query = 0; query < 50; query++) {
+				float value = random.nextFloat() * 700f - 50f;
+				assertEquals(scanClosest(anchors, value), index.closest(value));
+
+				int top = tops[random.nextInt(count)];
+				assertEquals(scanNextDown(tops, top), index.nextDown(top));
+				assertEquals(scanNextUp(tops, top), index.nextUp(top));
+			}
+
+			for (int i = 0; i < count; i++) {
+				assertEquals(tops[i], index.getTop(i));
+			}
+		}
+	}
+
+	/* same logic as the former SwipeLayout.calculateClosest */
+	private static int scanClosest(float[] anchors, float value) {
+		int closest = StopIndex.NONE;
+		for (int i = 0; i < anchors.length; i++) {
+			if (closest == StopIndex.NONE) {
+				closest = i;
+			}
+			if (Math.abs(anchors[closest] - value) > Math.abs(anchors[i] - value)) {
+				closest = i;
+			}
+		}
+		return closest;
+	}
+
+	/* same logic as the former SwipeLayout.getNextDownPosition */
+	private static int scanNextDown(int[] tops, int current) {
+		int next = StopIndex.NONE;
+		int nextDistance = Integer.MAX_VALUE;
+		for (int i = 0; i < tops.length; i++) {
+			int distance = tops[i] - current;
+			if (distance <= 0)
+				continue;
+			if (next == StopIndex.NONE || distance < nextDistance) {
+				next = i;
+				nextDistance = distance;
+			}
+		}
+		return next;
+	}
+
+	/* same logic as the former SwipeLayout.getNextUpPosition */
+	private static int scanNextUp(int[] tops, int current) {
+		int prev = StopIndex.NONE;
+		int prevDistance = -1 * Integer.MAX_VALUE;
+		for (int i = 0; i < tops.length; i++) {
+			int distance = tops[i] - current;
+			if (distance >= 0)
+				continue;
+			if (prev == StopIndex.NONE || Math.abs(distance) < Math.abs(prevDistance)) {
+				prev = i;
+				prevDistance = distance;
+			}
+		}
+		return prev;
+	}
+}
@@ -0,0 +1,96 @@
+package com.xaqwerx.swipelayout;
+
+import android.app.Activity;
+import android.view.View;
+import android.widget.FrameLayout;
+import android.widget.LinearLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Max height follows the height the parent leaves for the panel, the panel settles to resized stops after the layout pass
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class SwipeLayoutAvailableHeightTest {
+
+	private Activity activity;
+	private SwipeLayout layout;
+
+	@Before
+	public void setUp() throws Exception {
+		activity = Robolectric.setupActivity(Activity.class);
+		layout = new SwipeLayout(activity);
+		layout.editPositions()
+				.add(new SwipeLayout.StopPosition(SwipeLayout.SwipeToPosition.TO_TOP))
+				.add(new SwipeLayout.StopPosition(SwipeLayout.SwipeToPosition.TO_BOTTOM))
+				.commit();
+	}
+
+	@Test
+	public void parentResize_settlesToResizedStopAfterLayoutPass() throws Exception {
+		FrameLayout parent = new FrameLayout(activity);
+		parent.addView(layout, new FrameLayout.LayoutParams(FrameLayout.LayoutParams.MATCH_PARENT, 1000));
+		activity.setContentView(parent, new FrameLayout.LayoutParams(400, 1000));
+		PanelStateStore store = new PanelStateStore();
+		store.put(1, (1000L << 32) | (1 << 1));
+		layout.bindState(1, store);
+		layout(parent, 1000);
+		assertEquals(1000, layout.getMaxHeight(), 0);
+
+		ShadowLooper.pauseMainLooper();
+		layout(parent, 600);
+
+		assertEquals(600, layout.getMaxHeight(), 0);
+		assertEquals(1000, layout.getLayoutParams().height);
+
+		ShadowLooper.unPauseMainLooper();
+		ShadowLooper.idleMainLooper(1, TimeUnit.SECONDS);
+		assertEquals(600, layout.getLayoutParams().height);
+	}
+
+	@Test
+	public void wrapContentParent_ignoresResizeCausedByPanel() throws Exception {
+		LinearLayout parent = new LinearLayout(activity);
+		parent.setOrientation(LinearLayout.VERTICAL);
+		View header = new View(activity);
+		parent.addView(header, new LinearLayout.LayoutParams(LinearLayout.LayoutParams.MATCH_PARENT, 50));
+		parent.addView(layout, new LinearLayout.LayoutParams(LinearLayout.LayoutParams.MATCH_PARENT, 100));
+		activity.setContentView(parent, new FrameLayout.LayoutParams(400, FrameLayout.LayoutParams.WRAP_CONTENT));
+		layoutWrapped(parent);
+		assertEquals(150, layout.getMaxHeight(), 0);
+
+		layout.getLayoutParams().height = 300;
+		layoutWrapped(parent);
+		ShadowLooper.idleMainLooper(1, TimeUnit.SECONDS);
+
+		assertEquals(150, layout.getMaxHeight(), 0);
+		assertEquals(300, layout.getLayoutParams().height);
+
+		header.getLayoutParams().height = 100;
+		layoutWrapped(parent);
+
+		assertEquals(400, layout.getMaxHeight(), 0);
+	}
+
+	private static void layout(View parent, int height) {
+		parent.getLayoutParams().height = height;
+		parent.measure(View.MeasureSpec.makeMeasureSpec(400, View.MeasureSpec.EXACTLY), View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY));
+		parent.layout(0, 0, 400, height);
+	}
+
+	private static void layoutWrapped(View parent) {
+		parent.measure(View.MeasureSpec.makeMeasureSpec(400, View.MeasureSpec.EXACTLY), View.MeasureSpec.makeMeasureSpec(1000, View.MeasureSpec.AT_MOST));
+		parent.layout(0, 0, 400, parent.getMeasuredHeight());
+	}
+}
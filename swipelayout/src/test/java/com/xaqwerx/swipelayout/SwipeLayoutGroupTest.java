@@ -0,0 +1,129 @@
+package com.xaqwerx.swipelayout;
+
+import android.view.MotionEvent;
+import android.view.View;
+import android.widget.LinearLayout;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowChoreographer;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Settles of group members are stepped from one frame callback, SINGLE collapses other members in the same frames
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class SwipeLayoutGroupTest {
+
+	private static final int FRAME_MS = 16;
+	private static final int MAX_FRAMES = 60;
+
+	private LinearLayout parent;
+	private SwipeLayout expanding;
+	private SwipeLayout collapsing;
+
+	@Before
+	public void setUp() throws Exception {
+		ShadowChoreographer.setPostFrameCallbackDelay(FRAME_MS);
+
+		parent = new LinearLayout(RuntimeEnvironment.application);
+		parent.setOrientation(LinearLayout.VERTICAL);
+		expanding = createMember(100);
+		collapsing = createMember(100);
+
+		PanelStateStore store = new PanelStateStore();
+		store.put(1, (300L << 32) | (1 << 1));
+		collapsing.bindState(1, store);
+		layoutParent();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		ShadowChoreographer.setPostFrameCallbackDelay(0);
+	}
+
+	@Test
+	public void single_collapsesOtherMembersInSameFrames() throws Exception {
+		SwipeLayoutGroup group = new SwipeLayoutGroup(SwipeLayoutGroup.ExpandPolicy.SINGLE);
+		group.add(expanding);
+		group.add(collapsing);
+		float collapsedHeight = collapsing.getActionContainer().getHeight();
+
+		release(expanding, 250);
+
+		int frames = 0;
+		while (frames < MAX_FRAMES && (height(expanding) != 300 || height(collapsing) != collapsedHeight)) {
+			ShadowLooper.idleMainLooper(FRAME_MS, TimeUnit.MILLISECONDS);
+			frames++;
+
+			float expanded = (height(expanding) - 100) / 200f;
+			float collapsed = (300 - height(collapsing)) / (300 - collapsedHeight);
+			assertEquals("frame " + frames, expanded, collapsed, 0.02f);
+			layoutParent();
+		}
+
+		assertTrue(frames > 1);
+		assertEquals(300, height(expanding));
+		assertEquals(collapsedHeight, height(collapsing), 0);
+	}
+
+	@Test
+	public void any_keepsOtherMembersExpanded() throws Exception {
+		SwipeLayoutGroup group = new SwipeLayoutGroup(SwipeLayoutGroup.ExpandPolicy.ANY);
+		group.add(expanding);
+		group.add(collapsing);
+
+		release(expanding, 250);
+		for (int i = 0; i < MAX_FRAMES; i++) {
+			ShadowLooper.idleMainLooper(FRAME_MS, TimeUnit.MILLISECONDS);
+			layoutParent();
+		}
+
+		assertEquals(300, height(expanding));
+		assertEquals(300, height(collapsing));
+	}
+
+	/**
+	 * stops TO_TOP and 300 px
+	 */
+	private SwipeLayout createMember(int height) {
+		SwipeLayout layout = new SwipeLayout(RuntimeEnvironment.application);
+		layout.editPositions()
+				.add(new SwipeLayout.StopPosition(SwipeLayout.SwipeToPosition.TO_TOP))
+				.add(new SwipeLayout.StopPosition(SwipeLayout.SwipeToPosition.TO_POSITION, 300))
+				.commit();
+		parent.addView(layout, new LinearLayout.LayoutParams(LinearLayout.LayoutParams.MATCH_PARENT, height));
+		return layout;
+	}
+
+	/**
+	 * grabs the action container and lets it go the given px below its top
+	 */
+	private static void release(SwipeLayout layout, float y) {
+		MotionEvent event = MotionEvent.obtain(0, 0, MotionEvent.ACTION_DOWN, 0, 0, 0);
+		layout.onTouch(layout.getActionContainer(), event);
+		event.setAction(MotionEvent.ACTION_UP);
+		event.setLocation(0, y);
+		layout.onTouch(layout.getActionContainer(), event);
+		event.recycle();
+	}
+
+	private static int height(SwipeLayout layout) {
+		return layout.getLayoutParams().height;
+	}
+
+	private void layoutParent() {
+		parent.measure(View.MeasureSpec.makeMeasureSpec(400, View.MeasureSpec.EXACTLY), View.MeasureSpec.makeMeasureSpec(1000, View.MeasureSpec.EXACTLY));
+		parent.layout(0, 0, 400, 1000);
+	}
+}
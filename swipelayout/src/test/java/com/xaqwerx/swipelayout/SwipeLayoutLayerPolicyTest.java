@@ -0,0 +1,139 @@
+package com.xaqwerx.swipelayout;
+
+import android.app.Activity;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.RelativeLayout;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowChoreographer;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Motion layers are begun with the first move of a gesture and ended with it: layer type restored, snapshot released
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class SwipeLayoutLayerPolicyTest {
+
+	private FrameLayout parent;
+	private SwipeLayout layout;
+	private MotionEvent event;
+
+	@Before
+	public void setUp() throws Exception {
+		ShadowChoreographer.setPostFrameCallbackDelay(16);
+		Activity activity = Robolectric.setupActivity(Activity.class);
+		parent = new FrameLayout(activity);
+		layout = new SwipeLayout(activity) {
+			@Override
+			public boolean isHardwareAccelerated() {
+				return true;
+			}
+		};
+		layout.addView(new View(activity), new RelativeLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, 300));
+		parent.addView(layout, new FrameLayout.LayoutParams(FrameLayout.LayoutParams.MATCH_PARENT, 200));
+		activity.setContentView(parent, new FrameLayout.LayoutParams(400, 1000));
+		layoutParent();
+		event = MotionEvent.obtain(0, 0, MotionEvent.ACTION_DOWN, 0, 0, 0);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		event.recycle();
+		ShadowChoreographer.setPostFrameCallbackDelay(0);
+	}
+
+	@Test
+	public void hardwareLayer_translationDrag_isRestoredAtEnd() throws Exception {
+		layout.setLayerPolicy(SwipeLayout.LayerPolicy.HARDWARE_LAYER);
+		layout.setDragMode(SwipeLayout.DragMode.TRANSLATION);
+
+		startDrag();
+		assertEquals(View.LAYER_TYPE_HARDWARE, layout.getContentContainer().getLayerType());
+
+		touch(layout, MotionEvent.ACTION_UP, 250);
+		assertEquals(View.LAYER_TYPE_NONE, layout.getContentContainer().getLayerType());
+	}
+
+	@Test
+	public void hardwareLayer_layoutDrag_isNotPromoted() throws Exception {
+		layout.setLayerPolicy(SwipeLayout.LayerPolicy.HARDWARE_LAYER);
+
+		startDrag();
+
+		assertEquals(View.LAYER_TYPE_NONE, layout.getContentContainer().getLayerType());
+	}
+
+	@Test
+	public void snapshot_isAllocatedBeforeGesture() throws Exception {
+		layout.setLayerPolicy(SwipeLayout.LayerPolicy.SNAPSHOT);
+
+		// allocated from an idle handler, not in the first move frame
+		startDrag();
+		assertFalse(layout.isSnapshotActive());
+		touch(layout, MotionEvent.ACTION_UP, 250);
+
+		layout.allocateSnapshot();
+		startDrag();
+		assertTrue(layout.isSnapshotActive());
+	}
+
+	@Test
+	public void snapshot_isReleasedOnCancel() throws Exception {
+		layout.addPosition(new SwipeLayout.StopPosition(SwipeLayout.SwipeToPosition.TO_POSITION, 300));
+		layoutParent();
+		layout.setLayerPolicy(SwipeLayout.LayerPolicy.SNAPSHOT);
+		layout.allocateSnapshot();
+
+		startDrag();
+		assertTrue(layout.isSnapshotActive());
+
+		touch(layout, MotionEvent.ACTION_CANCEL, 250);
+		ShadowLooper.idleMainLooper(1, TimeUnit.SECONDS);
+
+		assertFalse(layout.isSnapshotActive());
+	}
+
+	@Test
+	public void snapshot_isReleasedOnDetach() throws Exception {
+		layout.setLayerPolicy(SwipeLayout.LayerPolicy.SNAPSHOT);
+		layout.allocateSnapshot();
+
+		startDrag();
+		assertTrue(layout.isSnapshotActive());
+
+		parent.removeView(layout);
+
+		assertFalse(layout.isSnapshotActive());
+	}
+
+	private void startDrag() {
+		touch(layout.getActionContainer(), MotionEvent.ACTION_DOWN, 10);
+		touch(layout, MotionEvent.ACTION_MOVE, 190);
+		touch(layout, MotionEvent.ACTION_MOVE, 250);
+	}
+
+	private void touch(View view, int action, float y) {
+		event.setAction(action);
+		event.setLocation(0, y);
+		layout.onTouch(view, event);
+	}
+
+	private void layoutParent() {
+		parent.measure(View.MeasureSpec.makeMeasureSpec(400, View.MeasureSpec.EXACTLY), View.MeasureSpec.makeMeasureSpec(1000, View.MeasureSpec.EXACTLY));
+		parent.layout(0, 0, 400, 1000);
+	}
+}
@@ -0,0 +1,167 @@
+package com.xaqwerx.swipelayout;
+
+import android.app.Activity;
+import android.content.Context;
+import android.os.Looper;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+/**
+ * Lazy content goes from pending through inflating to ready once, results of replaced content are dropped
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class SwipeLayoutLazyContentTest {
+
+	private static final Executor DIRECT = new Executor() {
+		@Override
+		public void execute(Runnable command) {
+			command.run();
+		}
+	};
+
+	private SwipeLayout layout;
+	private RecordingListener listener;
+
+	@Before
+	public void setUp() throws Exception {
+		Activity activity = Robolectric.setupActivity(Activity.class);
+		FrameLayout parent = new FrameLayout(activity);
+		layout = new SwipeLayout(activity);
+		layout.lazyContentExecutor = DIRECT;
+		parent.addView(layout);
+		activity.setContentView(parent);
+		listener = new RecordingListener();
+	}
+
+	@Test
+	public void content_isAddedOnceWhenReady() throws Exception {
+		CountingFactory factory = new CountingFactory();
+		layout.setLazyContent(factory, false, listener);
+		assertFalse(layout.isContentReady());
+
+		ShadowLooper.pauseMainLooper();
+		layout.requestLazyContent(true);
+		layout.requestLazyContent(true);
+
+		assertFalse(layout.isContentReady());
+		assertEquals(1, listener.placeholders);
+		assertEquals(1, factory.created);
+
+		ShadowLooper.unPauseMainLooper();
+
+		assertTrue(layout.isContentReady());
+		assertSame(factory.view, listener.content);
+		assertSame(layout.getContentContainer(), factory.view.getParent());
+
+		layout.requestLazyContent(true);
+		assertEquals(1, factory.created);
+		assertEquals(1, listener.placeholders);
+	}
+
+	@Test
+	public void idleRequest_showsNoPlaceholder() throws Exception {
+		layout.setLazyContent(new CountingFactory(), false, listener);
+
+		layout.requestLazyContent(false);
+
+		assertTrue(layout.isContentReady());
+		assertEquals(0, listener.placeholders);
+	}
+
+	@Test
+	public void replacedContent_dropsStaleResult() throws Exception {
+		CountingFactory stale = new CountingFactory();
+		layout.setLazyContent(stale, false, listener);
+		ShadowLooper.pauseMainLooper();
+		layout.requestLazyContent(true);
+
+		CountingFactory current = new CountingFactory();
+		layout.setLazyContent(current, false, listener);
+		ShadowLooper.unPauseMainLooper();
+
+		assertFalse(layout.isContentReady());
+		assertNull(stale.view.getParent());
+		assertNull(listener.content);
+
+		layout.requestLazyContent(true);
+
+		assertTrue(layout.isContentReady());
+		assertSame(current.view, listener.content);
+	}
+
+	@Test
+	public void throwingFactory_isRetriedOnMainThread() throws Exception {
+		layout.lazyContentExecutor = new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				Thread thread = new Thread(command);
+				thread.start();
+				try {
+					thread.join();
+				}
+				catch (InterruptedException e) {
+					throw new AssertionError(e);
+				}
+			}
+		};
+		CountingFactory factory = new CountingFactory() {
+			@Override
+			public View createContent(Context context) {
+				if (Looper.myLooper() == null)
+					throw new RuntimeException("Can't create handler inside thread that has not called Looper.prepare()");
+				return super.createContent(context);
+			}
+		};
+		layout.setLazyContent(factory, false, listener);
+
+		ShadowLooper.pauseMainLooper();
+		layout.requestLazyContent(true);
+		assertFalse(layout.isContentReady());
+		ShadowLooper.unPauseMainLooper();
+
+		assertTrue(layout.isContentReady());
+		assertSame(factory.view, listener.content);
+	}
+
+	private static class CountingFactory implements SwipeLayout.ContentFactory {
+
+		int created;
+		View view;
+
+		@Override
+		public View createContent(Context context) {
+			created++;
+			view = new View(context);
+			return view;
+		}
+	}
+
+	private static class RecordingListener implements SwipeLayout.OnLazyContentListener {
+
+		int placeholders;
+		View content;
+
+		@Override
+		public void onContentPlaceholder(SwipeLayout layout) {
+			placeholders++;
+		}
+
+		@Override
+		public void onContentReady(SwipeLayout layout, View content, long elapsedMs) {
+			this.content = content;
+		}
+	}
+}
@@ -0,0 +1,179 @@
+package com.xaqwerx.swipelayout;
+
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.LinearLayout;
+import android.widget.RelativeLayout;
+import android.widget.ScrollView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+/**
+ * Measure and layout of the panel: one measure pass per child, height changes of top aligned content only re-layout
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class SwipeLayoutMeasureTest {
+
+	private FrameLayout parent;
+	private SwipeLayout layout;
+	private CountingView child;
+
+	@Before
+	public void setUp() throws Exception {
+		parent = new FrameLayout(RuntimeEnvironment.application);
+		layout = new SwipeLayout(RuntimeEnvironment.application);
+		child = new CountingView();
+		layout.addView(child, new RelativeLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, 300));
+		parent.addView(layout, new FrameLayout.LayoutParams(FrameLayout.LayoutParams.MATCH_PARENT, 200));
+		layoutParent();
+	}
+
+	@Test
+	public void actionContainer_isBelowContent() throws Exception {
+		View action = layout.getActionContainer();
+
+		assertEquals(200, layout.getHeight());
+		assertEquals(200, action.getBottom());
+		assertEquals(action.getTop(), layout.getContentContainer().getBottom());
+		assertEquals(0, layout.getContentContainer().getTop());
+	}
+
+	@Test
+	public void heightChange_doesNotRemeasureTopAlignedContent() throws Exception {
+		int measures = child.measures;
+
+		for (int height = 100; height < 400; height += 10) {
+			setPanelHeight(height);
+		}
+
+		assertEquals(measures, child.measures);
+		assertEquals(390 - layout.getActionContainer().getHeight(), layout.getContentContainer().getHeight());
+	}
+
+	@Test
+	public void heightChange_remeasuresContentFollowingHeight() throws Exception {
+		RelativeLayout.LayoutParams params = (RelativeLayout.LayoutParams) child.getLayoutParams();
+		params.height = ViewGroup.LayoutParams.MATCH_PARENT;
+		child.setLayoutParams(params);
+		layoutParent();
+		int measures = child.measures;
+
+		setPanelHeight(300);
+
+		assertTrue(child.measures > measures);
+		assertEquals(layout.getContentContainer().getHeight(), child.getHeight());
+	}
+
+	@Test
+	public void wrapContentScrollView_isBoundedByVisibleHeight() throws Exception {
+		ScrollView scrollView = new ScrollView(RuntimeEnvironment.application);
+		scrollView.addView(new View(RuntimeEnvironment.application), new ScrollView.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, 2000));
+		layout.getContentContainer().removeAllViews();
+		layout.addView(scrollView, new RelativeLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+		layoutParent();
+
+		assertEquals(200 - layout.getActionContainer().getHeight(), scrollView.getHeight());
+		assertTrue(scrollView.canScrollVertically(1));
+	}
+
+	@Test
+	public void scrollViewInWrapContentGroup_isBoundedByVisibleHeight() throws Exception {
+		ScrollView scrollView = new ScrollView(RuntimeEnvironment.application);
+		scrollView.addView(new View(RuntimeEnvironment.application), new ScrollView.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, 2000));
+		LinearLayout group = new LinearLayout(RuntimeEnvironment.application);
+		group.setOrientation(LinearLayout.VERTICAL);
+		group.addView(scrollView, new LinearLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+		layout.getContentContainer().removeAllViews();
+		layout.addView(group, new RelativeLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+		layoutParent();
+
+		assertEquals(200 - layout.getActionContainer().getHeight(), scrollView.getHeight());
+		assertTrue(scrollView.canScrollVertically(1));
+	}
+
+	@Test
+	public void contentTallerThanMaxHeight_isMeasuredAsOftenAsFittingContent() throws Exception {
+		int fitting = measuresPerPass();
+
+		RelativeLayout.LayoutParams params = (RelativeLayout.LayoutParams) child.getLayoutParams();
+		params.height = 3000;
+		child.setLayoutParams(params);
+		layoutParent();
+
+		assertEquals(fitting, measuresPerPass());
+	}
+
+	@Test
+	public void contentTallerThanMaxHeight_isBounded() throws Exception {
+		RelativeLayout.LayoutParams params = (RelativeLayout.LayoutParams) child.getLayoutParams();
+		params.height = 3000;
+		child.setLayoutParams(params);
+		layoutParent();
+
+		assertTrue(layout.getContentContainer().getMeasuredHeight() <= 1000);
+	}
+
+	@Test
+	public void clipReveal_collapseAndExpand_doNotRemeasureContent() throws Exception {
+		RelativeLayout.LayoutParams params = (RelativeLayout.LayoutParams) child.getLayoutParams();
+		params.height = ViewGroup.LayoutParams.MATCH_PARENT;
+		child.setLayoutParams(params);
+		layout.setContentReveal(SwipeLayout.ContentReveal.CLIP);
+		layoutParent();
+		int measures = child.measures;
+		int contentHeight = layout.getContentContainer().getHeight();
+
+		setPanelHeight(layout.getActionContainer().getHeight());
+		assertEquals(View.INVISIBLE, layout.getContentContainer().getVisibility());
+
+		for (int height = 100; height < 400; height += 10) {
+			setPanelHeight(height);
+		}
+
+		assertEquals(measures, child.measures);
+		assertEquals(View.VISIBLE, layout.getContentContainer().getVisibility());
+		assertEquals(contentHeight, layout.getContentContainer().getHeight());
+	}
+
+	private int measuresPerPass() {
+		int measures = child.measures;
+		child.requestLayout();
+		layoutParent();
+		return child.measures - measures;
+	}
+
+	private void setPanelHeight(int height) {
+		ViewGroup.LayoutParams params = layout.getLayoutParams();
+		params.height = height;
+		layout.setLayoutParams(params);
+		layoutParent();
+	}
+
+	private void layoutParent() {
+		parent.measure(View.MeasureSpec.makeMeasureSpec(400, View.MeasureSpec.EXACTLY), View.MeasureSpec.makeMeasureSpec(1000, View.MeasureSpec.EXACTLY));
+		parent.layout(0, 0, 400, 1000);
+	}
+
+	private static class CountingView extends View {
+		int measures;
+
+		CountingView() {
+			super(RuntimeEnvironment.application);
+		}
+
+		@Override
+		protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+			measures++;
+			super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+		}
+	}
+}
@@ -0,0 +1,84 @@
+package com.xaqwerx.swipelayout;
+
+import android.support.v4.view.ViewCompat;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+/**
+ * Scroll deltas of nested content are split between the panel and the content according to the nested scroll mode
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class SwipeLayoutNestedScrollTest {
+
+	private SwipeLayout layout;
+	private View content;
+
+	@Before
+	public void setUp() throws Exception {
+		FrameLayout parent = new FrameLayout(RuntimeEnvironment.application);
+		layout = new SwipeLayout(RuntimeEnvironment.application);
+		content = new View(RuntimeEnvironment.application);
+		layout.addView(content);
+		parent.addView(layout, new FrameLayout.LayoutParams(FrameLayout.LayoutParams.MATCH_PARENT, 300));
+		parent.measure(View.MeasureSpec.makeMeasureSpec(400, View.MeasureSpec.EXACTLY), View.MeasureSpec.makeMeasureSpec(1000, View.MeasureSpec.EXACTLY));
+		parent.layout(0, 0, 400, 1000);
+	}
+
+	@Test
+	public void noneMode_doesNotStart() throws Exception {
+		assertFalse(layout.onStartNestedScroll(content, content, ViewCompat.SCROLL_AXIS_VERTICAL));
+	}
+
+	@Test
+	public void panelFirst_collapsesBeforeContentScrolls() throws Exception {
+		layout.setNestedScrollMode(SwipeLayout.NestedScrollMode.PANEL_FIRST);
+		startNestedScroll();
+
+		int[] consumed = new int[2];
+		layout.onNestedPreScroll(content, 0, 40, consumed);
+
+		assertEquals(40, consumed[1]);
+		assertEquals(260, layout.getLayoutParams().height);
+	}
+
+	@Test
+	public void panelFirst_expandsOnlyWithUnconsumedScroll() throws Exception {
+		layout.setNestedScrollMode(SwipeLayout.NestedScrollMode.PANEL_FIRST);
+		startNestedScroll();
+
+		int[] consumed = new int[2];
+		layout.onNestedPreScroll(content, 0, -40, consumed);
+		assertEquals(0, consumed[1]);
+		assertEquals(300, layout.getLayoutParams().height);
+
+		layout.onNestedScroll(content, 0, 0, 0, -40);
+		assertEquals(340, layout.getLayoutParams().height);
+	}
+
+	@Test
+	public void stopMode_overridesLayoutMode() throws Exception {
+		SwipeLayout.StopPosition stop = new SwipeLayout.StopPosition(SwipeLayout.SwipeToPosition.TO_POSITION, 300)
+				.setNestedScrollMode(SwipeLayout.NestedScrollMode.CONTENT_FIRST);
+		layout.addPosition(stop);
+		PanelStateStore store = new PanelStateStore();
+		store.put(1, 300L << 32);
+		layout.bindState(1, store);
+
+		assertTrue(layout.onStartNestedScroll(content, content, ViewCompat.SCROLL_AXIS_VERTICAL));
+	}
+
+	private void startNestedScroll() {
+		assertTrue(layout.onStartNestedScroll(content, content, ViewCompat.SCROLL_AXIS_VERTICAL));
+		layout.onNestedScrollAccepted(content, content, ViewCompat.SCROLL_AXIS_VERTICAL);
+	}
+}
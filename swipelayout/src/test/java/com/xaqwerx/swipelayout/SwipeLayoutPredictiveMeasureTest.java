@@ -0,0 +1,78 @@
+package com.xaqwerx.swipelayout;
+
+import android.util.AttributeSet;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.RelativeLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+/**
+ * Hidden content is measured and laid out for the next stop before the panel expands
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class SwipeLayoutPredictiveMeasureTest {
+
+	private FrameLayout parent;
+
+	@Before
+	public void setUp() throws Exception {
+		parent = new FrameLayout(RuntimeEnvironment.application);
+	}
+
+	@Test
+	public void enabledFromXml_predictsAfterFirstLayout() throws Exception {
+		AttributeSet attrs = Robolectric.buildAttributeSet()
+				.addAttribute(R.attr.swPredictiveMeasure, "true")
+				.build();
+		SwipeLayout layout = createLayout(attrs);
+		assertTrue(layout.isPredictiveMeasure());
+		assertFalse(layout.isPredictiveMeasureQueued());
+
+		layoutParent();
+
+		assertTrue(layout.isPredictiveMeasureQueued());
+	}
+
+	@Test
+	public void hiddenContent_isLaidOutForNextStop() throws Exception {
+		SwipeLayout layout = createLayout(null);
+		layout.editPositions()
+				.add(new SwipeLayout.StopPosition(SwipeLayout.SwipeToPosition.TO_TOP))
+				.add(new SwipeLayout.StopPosition(SwipeLayout.SwipeToPosition.TO_POSITION, 300))
+				.commit();
+		layoutParent();
+		int collapsedHeight = layout.getActionContainer().getHeight();
+		PanelStateStore store = new PanelStateStore();
+		store.put(1, (long) collapsedHeight << 32);
+		layout.bindState(1, store);
+		layoutParent();
+		assertEquals(View.GONE, layout.getContentContainer().getVisibility());
+
+		layout.premeasureNextStop();
+
+		assertEquals(300 - collapsedHeight, layout.getContentContainer().getHeight());
+	}
+
+	private SwipeLayout createLayout(AttributeSet attrs) {
+		SwipeLayout layout = new SwipeLayout(RuntimeEnvironment.application, attrs);
+		layout.addView(new View(RuntimeEnvironment.application), new RelativeLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+		parent.addView(layout, new FrameLayout.LayoutParams(FrameLayout.LayoutParams.MATCH_PARENT, FrameLayout.LayoutParams.WRAP_CONTENT));
+		return layout;
+	}
+
+	private void layoutParent() {
+		parent.measure(View.MeasureSpec.makeMeasureSpec(400, View.MeasureSpec.EXACTLY), View.MeasureSpec.makeMeasureSpec(1000, View.MeasureSpec.EXACTLY));
+		parent.layout(0, 0, 400, 1000);
+	}
+}
@@ -0,0 +1,97 @@
+package com.xaqwerx.swipelayout;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.view.AbsSavedState;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+/**
+ * Saved state stays a few primitives per stop and restores stops, current stop, height and direction
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class SwipeLayoutSavedStateTest {
+
+	private static final int STOP_COUNT = 10;
+	private static final int MAX_BYTES_PER_STOP = 8;
+
+	/**
+	 * stop array length, current stop, height and direction take 16, base saved state a few more.
+	 * A serialized object or class name would take far more
+	 */
+	private static final int MAX_FIXED_BYTES = 24;
+
+	private SwipeLayout layout;
+
+	@Before
+	public void setUp() throws Exception {
+		layout = createLayout();
+		layout.addPosition(new SwipeLayout.StopPosition(SwipeLayout.SwipeToPosition.TO_TOP));
+		for (int i = 1; i < STOP_COUNT - 1; i++) {
+			layout.addPosition(new SwipeLayout.StopPosition(SwipeLayout.SwipeToPosition.TO_POSITION, i * 50));
+		}
+		layout.addPosition(new SwipeLayout.StopPosition(SwipeLayout.SwipeToPosition.TO_BOTTOM));
+
+		PanelStateStore store = new PanelStateStore();
+		store.put(1, (250L << 32) | (3 << 1) | 1);
+		layout.bindState(1, store);
+	}
+
+	@Test
+	public void savedState_isCompact() throws Exception {
+		// state of a layout without stops, less the empty super state, is what SavedState adds itself
+		int superSize = parcelSize(AbsSavedState.EMPTY_STATE);
+		int fixedSize = parcelSize(createLayout().onSaveInstanceState());
+		int size = parcelSize(layout.onSaveInstanceState());
+
+		assertTrue("Saved state takes " + (fixedSize - superSize) + " bytes without stops", fixedSize - superSize <= MAX_FIXED_BYTES);
+		assertTrue("Saved state takes " + (size - fixedSize) + " bytes for " + STOP_COUNT + " stops", size - fixedSize <= STOP_COUNT * MAX_BYTES_PER_STOP);
+	}
+
+	@Test
+	public void restore_isComplete() throws Exception {
+		SwipeLayout.SavedState saved = (SwipeLayout.SavedState) layout.onSaveInstanceState();
+		Parcel parcel = Parcel.obtain();
+		saved.writeToParcel(parcel, 0);
+		parcel.setDataPosition(0);
+		Parcelable restored = SwipeLayout.SavedState.CREATOR.createFromParcel(parcel);
+		parcel.recycle();
+
+		SwipeLayout restoredLayout = createLayout();
+		restoredLayout.onRestoreInstanceState(restored);
+		SwipeLayout.SavedState resaved = (SwipeLayout.SavedState) restoredLayout.onSaveInstanceState();
+
+		assertArrayEquals(saved.stops, resaved.stops);
+		assertEquals(3, resaved.stop);
+		assertEquals(250, resaved.height);
+		assertEquals(saved.direction, resaved.direction);
+		assertEquals(250, restoredLayout.getLayoutParams().height);
+	}
+
+	private static SwipeLayout createLayout() {
+		FrameLayout parent = new FrameLayout(RuntimeEnvironment.application);
+		SwipeLayout layout = new SwipeLayout(RuntimeEnvironment.application);
+		parent.addView(layout, new FrameLayout.LayoutParams(FrameLayout.LayoutParams.MATCH_PARENT, 200));
+		parent.measure(View.MeasureSpec.makeMeasureSpec(400, View.MeasureSpec.EXACTLY), View.MeasureSpec.makeMeasureSpec(1000, View.MeasureSpec.EXACTLY));
+		parent.layout(0, 0, 400, 1000);
+		return layout;
+	}
+
+	private static int parcelSize(Parcelable state) {
+		Parcel parcel = Parcel.obtain();
+		state.writeToParcel(parcel, 0);
+		int size = parcel.dataSize();
+		parcel.recycle();
+		return size;
+	}
+}
@@ -0,0 +1,125 @@
+package com.xaqwerx.swipelayout;
+
+import android.view.MotionEvent;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowChoreographer;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Gestures are counted from the first move of the panel ( or a settle ), touches that don't move it are not
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class SwipeMetricsTest {
+
+	private SwipeLayout layout;
+	private MotionEvent event;
+	private int reported;
+
+	@Before
+	public void setUp() throws Exception {
+		FrameLayout parent = new FrameLayout(RuntimeEnvironment.application);
+		layout = new SwipeLayout(RuntimeEnvironment.application);
+		parent.addView(layout, new FrameLayout.LayoutParams(FrameLayout.LayoutParams.MATCH_PARENT, 200));
+		parent.measure(View.MeasureSpec.makeMeasureSpec(400, View.MeasureSpec.EXACTLY), View.MeasureSpec.makeMeasureSpec(1000, View.MeasureSpec.EXACTLY));
+		parent.layout(0, 0, 400, 1000);
+
+		layout.setOnMetricsListener(new SwipeMetrics.OnMetricsListener() {
+			@Override
+			public void onGestureMetrics(SwipeLayout layout, SwipeMetrics.GestureStats stats) {
+				reported++;
+			}
+		});
+		event = MotionEvent.obtain(0, 0, MotionEvent.ACTION_DOWN, 0, 0, 0);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		event.recycle();
+		ShadowChoreographer.setPostFrameCallbackDelay(0);
+	}
+
+	@Test
+	public void tapOnContent_isNoGesture() throws Exception {
+		touch(layout.getContentContainer(), MotionEvent.ACTION_DOWN, 50);
+		touch(layout.getContentContainer(), MotionEvent.ACTION_UP, 50);
+
+		assertEquals(0, reported);
+		assertEquals(0, layout.getMetrics().getGestureDurationHistogram().getTotal());
+	}
+
+	@Test
+	public void grabWithoutMove_isNoGesture() throws Exception {
+		touch(layout.getActionContainer(), MotionEvent.ACTION_DOWN, 10);
+		touch(layout, MotionEvent.ACTION_MOVE, 190);
+		touch(layout, MotionEvent.ACTION_UP, 190);
+
+		assertEquals(0, reported);
+		assertEquals(0, layout.getMetrics().getFramesOverBudgetHistogram().getTotal());
+	}
+
+	@Test
+	public void drag_isOneGesture() throws Exception {
+		touch(layout.getActionContainer(), MotionEvent.ACTION_DOWN, 10);
+		touch(layout, MotionEvent.ACTION_MOVE, 190);
+		touch(layout, MotionEvent.ACTION_MOVE, 250);
+		touch(layout, MotionEvent.ACTION_MOVE, 300);
+		touch(layout, MotionEvent.ACTION_UP, 300);
+
+		assertEquals(1, reported);
+		assertEquals(1, layout.getMetrics().getGestureDurationHistogram().getTotal());
+		assertEquals(0, layout.getMetrics().getSettleDurationHistogram().getTotal());
+	}
+
+	@Test
+	public void overBudgetRatio_isSharePerPolicy() throws Exception {
+		assertTrue(Float.isNaN(layout.getMetrics().getOverBudgetRatio(SwipeLayout.LayerPolicy.NONE)));
+
+		ShadowChoreographer.setPostFrameCallbackDelay(16);
+		touch(layout.getActionContainer(), MotionEvent.ACTION_DOWN, 10);
+		touch(layout, MotionEvent.ACTION_MOVE, 190);
+		touch(layout, MotionEvent.ACTION_MOVE, 250);
+		// first frame only starts the count, second is on time, third is late
+		ShadowLooper.idleMainLooper(16, TimeUnit.MILLISECONDS);
+		ShadowChoreographer.setPostFrameCallbackDelay(50);
+		ShadowLooper.idleMainLooper(16, TimeUnit.MILLISECONDS);
+		ShadowLooper.idleMainLooper(50, TimeUnit.MILLISECONDS);
+		touch(layout, MotionEvent.ACTION_UP, 250);
+
+		assertEquals(1, reported);
+		assertEquals(1 / 3f, layout.getMetrics().getOverBudgetRatio(SwipeLayout.LayerPolicy.NONE), 0.001f);
+		assertTrue(Float.isNaN(layout.getMetrics().getOverBudgetRatio(SwipeLayout.LayerPolicy.SNAPSHOT)));
+	}
+
+	@Test
+	public void histogram_countsByBucket() throws Exception {
+		SwipeMetrics.Histogram histogram = new SwipeMetrics.Histogram(10, 20);
+		histogram.record(5);
+		histogram.record(10);
+		histogram.record(15);
+		histogram.record(40);
+
+		assertArrayEquals(new int[]{2, 1, 1}, histogram.getCounts());
+		assertEquals(4, histogram.getTotal());
+		assertEquals(17.5, histogram.getMean(), 0.001);
+	}
+
+	private void touch(View view, int action, float y) {
+		event.setAction(action);
+		event.setLocation(0, y);
+		layout.onTouch(view, event);
+	}
+}